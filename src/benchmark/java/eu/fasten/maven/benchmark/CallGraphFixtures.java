@@ -0,0 +1,203 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+
+/**
+ * Generate synthetic call graphs of configurable size.
+ * <p>
+ * The project (index 0) and each dependency contain a single package with {@code types} types of {@code methods}
+ * methods each. Each method calls {@code edges} random methods: one of them is located in the next dependency (so that
+ * the whole chain is reachable from the project) and the others in the same package. The graphs are the same for the
+ * same seed.
+ *
+ * @version $Id$
+ */
+public class CallGraphFixtures
+{
+    private static final String GROUP_ID = "eu.fasten.synthetic";
+
+    private final int types;
+
+    private final int methods;
+
+    private final int edges;
+
+    private final long seed;
+
+    /**
+     * @param types the number of types in each package
+     * @param methods the number of methods in each type
+     * @param edges the number of calls made by each method
+     * @param seed the seed of the random generator used to choose the called methods
+     */
+    public CallGraphFixtures(int types, int methods, int edges, long seed)
+    {
+        this.types = types;
+        this.methods = methods;
+        this.edges = edges;
+        this.seed = seed;
+    }
+
+    /**
+     * @param dependencies the number of dependencies
+     * @return the call graphs of the project (first) and its dependencies
+     */
+    public List<MavenExtendedRevisionJavaCallGraph> create(int dependencies)
+    {
+        List<MavenExtendedRevisionJavaCallGraph> callGraphs = new ArrayList<>(dependencies + 1);
+
+        for (int index = 0; index <= dependencies; ++index) {
+            callGraphs.add(create(index, index < dependencies));
+        }
+
+        return callGraphs;
+    }
+
+    /**
+     * @param index the index of the package (0 for the project)
+     * @param callNext true if the methods should call the package with the next index
+     * @return the call graph of the package
+     */
+    public MavenExtendedRevisionJavaCallGraph create(int index, boolean callNext)
+    {
+        Random random = new Random(this.seed + index);
+
+        String artifactId = getArtifactId(index);
+        Artifact artifact = new DefaultArtifact(GROUP_ID, artifactId, "1.0", Artifact.SCOPE_COMPILE, "jar", null,
+            new DefaultArtifactHandler("jar"));
+
+        int internalCount = this.types * this.methods;
+
+        // Internal types
+        JSONObject internalTypes = new JSONObject();
+        for (int type = 0; type < this.types; ++type) {
+            JSONObject typeMethods = new JSONObject();
+            for (int method = 0; method < this.methods; ++method) {
+                typeMethods.put(String.valueOf(type * this.methods + method), toMethod(index, type, method));
+            }
+            internalTypes.put(getTypeURI(index, type), toType(typeMethods));
+        }
+
+        // External types (the methods of the next package called by this package)
+        JSONObject externalTypes = new JSONObject();
+        int externalCount = 0;
+        int[] externalIds = new int[internalCount];
+
+        JSONArray callSites = new JSONArray();
+        for (int source = 0; source < internalCount; ++source) {
+            for (int edge = 0; edge < this.edges; ++edge) {
+                int target;
+                String receiver;
+                if (callNext && edge == 0) {
+                    int external = random.nextInt(internalCount);
+                    int type = external / this.methods;
+
+                    if (externalIds[external] == 0) {
+                        externalIds[external] = internalCount + externalCount++;
+
+                        String typeURI = getTypeURI(index + 1, type);
+                        JSONObject externalType = externalTypes.optJSONObject(typeURI);
+                        if (externalType == null) {
+                            externalType = toType(new JSONObject());
+                            externalTypes.put(typeURI, externalType);
+                        }
+                        externalType.getJSONObject("methods").put(String.valueOf(externalIds[external]),
+                            toMethod(index + 1, type, external % this.methods));
+                    }
+
+                    target = externalIds[external];
+                    receiver = getTypeURI(index + 1, type);
+                } else {
+                    target = random.nextInt(internalCount);
+                    receiver = getTypeURI(index, target / this.methods);
+                }
+
+                JSONObject callSite = new JSONObject();
+                callSite.put("line", edge);
+                callSite.put("type", "invokestatic");
+                callSite.put("receiver", "[" + receiver + "]");
+
+                callSites.put(new JSONArray().put(source).put(target)
+                    .put(new JSONObject().put(String.valueOf(edge), callSite)));
+            }
+        }
+
+        JSONObject cha = new JSONObject();
+        cha.put("internalTypes", internalTypes);
+        cha.put("externalTypes", externalTypes);
+        cha.put("resolvedTypes", new JSONObject());
+
+        JSONObject json = new JSONObject();
+        json.put("product", GROUP_ID + ':' + artifactId);
+        json.put("nodes", internalCount + externalCount);
+        json.put("forge", "mvn");
+        json.put("generator", "OPAL");
+        json.put("version", "1.0");
+        json.put("cha", cha);
+        json.put("call-sites", callSites);
+        json.put("timestamp", 0);
+
+        return new MavenExtendedRevisionJavaCallGraph(artifact, json, false);
+    }
+
+    private static String getArtifactId(int index)
+    {
+        return index == 0 ? "project" : "dependency" + index;
+    }
+
+    private static String getTypeURI(int index, int type)
+    {
+        return "/" + GROUP_ID + '.' + getArtifactId(index) + "/T" + type;
+    }
+
+    private static JSONObject toMethod(int index, int type, int method)
+    {
+        JSONObject json = new JSONObject();
+        json.put("uri", getTypeURI(index, type) + ".m" + method + "()%2Fjava.lang%2FVoidType");
+        json.put("metadata", new JSONObject());
+
+        return json;
+    }
+
+    private static JSONObject toType(JSONObject methods)
+    {
+        JSONObject json = new JSONObject();
+        json.put("methods", methods);
+        json.put("superClasses", new JSONArray().put("/java.lang/Object"));
+        json.put("superInterfaces", new JSONArray());
+        json.put("sourceFile", "");
+        json.put("access", "public");
+        json.put("final", false);
+
+        return json;
+    }
+}
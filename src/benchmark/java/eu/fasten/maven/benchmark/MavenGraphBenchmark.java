@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+import eu.fasten.maven.MavenGraph;
+import eu.fasten.maven.MavenGraphNode;
+
+/**
+ * Measure the creation of a {@link MavenGraph} (merge, index and optimization) from synthetic call graphs.
+ * <p>
+ * Run with {@code -prof gc} to get the memory allocated for each created graph.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MavenGraphBenchmark
+{
+    private static final Log LOG = new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "benchmark"));
+
+    @Param("10")
+    private int dependencies;
+
+    @Param({"100", "1000"})
+    private int types;
+
+    @Param("20")
+    private int methods;
+
+    @Param("3")
+    private int edges;
+
+    private MavenExtendedRevisionJavaCallGraph project;
+
+    private List<MavenExtendedRevisionJavaCallGraph> dependencyCGs;
+
+    private MavenGraph graph;
+
+    /**
+     * Generate the call graphs.
+     */
+    @Setup
+    public void setup()
+    {
+        List<MavenExtendedRevisionJavaCallGraph> callGraphs =
+            new CallGraphFixtures(this.types, this.methods, this.edges, 42).create(this.dependencies);
+
+        this.project = callGraphs.get(0);
+        this.dependencyCGs = callGraphs.subList(1, callGraphs.size());
+
+        this.graph = new MavenGraph(this.project, this.dependencyCGs, LOG);
+    }
+
+    /**
+     * @return the created graph
+     */
+    @Benchmark
+    public MavenGraph create()
+    {
+        return new MavenGraph(this.project, this.dependencyCGs, LOG);
+    }
+
+    /**
+     * @return the number of nodes of the optimized graph which are resolved
+     */
+    @Benchmark
+    public int getOptimizedNodes()
+    {
+        int count = 0;
+        for (MavenGraphNode node : this.graph.getOptimizedNodes()) {
+            if (node != null) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.ListUtils;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.fasten.core.data.FastenJavaURI;
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.JavaNode;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.core.data.JavaType;
+import eu.fasten.core.merge.CGMerger;
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+import eu.fasten.maven.MavenGraph;
+
+/**
+ * Measure the creation of a {@link MavenGraph} made of classes declaring many methods (like generated parsers or
+ * protocol buffers), where resolving the nodes of the merged graph used to be quadratic in the number of methods per
+ * class.
+ * <p>
+ * {@link #resolveWithScan()} and {@link #resolveWithIndex()} isolate the resolution of the merged URIs to compare the
+ * previous scan of the type methods with the per-package method index now used by {@link MavenGraph}.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MavenGraphIndexBenchmark
+{
+    private static final Log LOG = new DefaultLog(new ConsoleLogger(Logger.LEVEL_WARN, "benchmark"));
+
+    @Param("5")
+    private int dependencies;
+
+    @Param("20")
+    private int types;
+
+    @Param({"100", "1000", "5000"})
+    private int methods;
+
+    @Param("2")
+    private int edges;
+
+    private MavenExtendedRevisionJavaCallGraph project;
+
+    private List<MavenExtendedRevisionJavaCallGraph> dependencyCGs;
+
+    private Map<String, MavenExtendedRevisionJavaCallGraph> packages;
+
+    private List<FastenJavaURI> uris;
+
+    /**
+     * Generate the call graphs.
+     */
+    @Setup
+    public void setup()
+    {
+        List<MavenExtendedRevisionJavaCallGraph> callGraphs =
+            new CallGraphFixtures(this.types, this.methods, this.edges, 42).create(this.dependencies);
+
+        this.project = callGraphs.get(0);
+        this.dependencyCGs = callGraphs.subList(1, callGraphs.size());
+
+        this.packages = new HashMap<>();
+        for (MavenExtendedRevisionJavaCallGraph callGraph : callGraphs) {
+            this.packages.put(callGraph.product, callGraph);
+        }
+
+        // Parse the merged URIs once, it's the same for both resolutions
+        CGMerger merger =
+            new CGMerger(ListUtils.union(Collections.singletonList(this.project), this.dependencyCGs), true);
+        merger.mergeAllDeps();
+        this.uris = new ArrayList<>();
+        for (String uri : merger.getAllUris().values()) {
+            FastenJavaURI fullURI = FastenJavaURI.create(uri);
+            if (fullURI.getProduct() != null) {
+                this.uris.add(fullURI);
+            }
+        }
+    }
+
+    /**
+     * @return the created graph
+     */
+    @Benchmark
+    public MavenGraph create()
+    {
+        return new MavenGraph(this.project, this.dependencyCGs, LOG);
+    }
+
+    /**
+     * The resolution used before the method index: find the type of each URI and scan its methods.
+     *
+     * @return the number of resolved URIs
+     */
+    @Benchmark
+    public int resolveWithScan()
+    {
+        int count = 0;
+        for (FastenJavaURI fullURI : this.uris) {
+            MavenExtendedRevisionJavaCallGraph cg = this.packages.get(fullURI.getProduct());
+
+            JavaType type = cg.getClassHierarchy().get(JavaScope.internalTypes).get(FastenJavaURI
+                .createWithoutFunction("/" + fullURI.getNamespace() + "/" + fullURI.getClassName()).toString());
+            if (type != null) {
+                Optional<JavaNode> nodeOptional = type.getMethods().values().stream()
+                    .filter(n -> n.getUri().getEntity().equals(fullURI.getEntity())).findFirst();
+
+                if (nodeOptional.isPresent()) {
+                    ++count;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The resolution used by {@link MavenGraph}: index the methods of each package once, then look up each URI.
+     *
+     * @return the number of resolved URIs
+     */
+    @Benchmark
+    public int resolveWithIndex()
+    {
+        Map<String, Map<String, JavaNode>> methods = new HashMap<>(this.packages.size());
+        for (MavenExtendedRevisionJavaCallGraph cg : this.packages.values()) {
+            Map<String, JavaNode> packageMethods = new HashMap<>();
+            for (JavaType type : cg.getClassHierarchy().get(JavaScope.internalTypes).values()) {
+                for (JavaNode node : type.getMethods().values()) {
+                    packageMethods.putIfAbsent(getMethodKey(node.getUri()), node);
+                }
+            }
+            methods.put(cg.product, packageMethods);
+        }
+
+        int count = 0;
+        for (FastenJavaURI fullURI : this.uris) {
+            if (methods.get(fullURI.getProduct()).get(getMethodKey(fullURI)) != null) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    private static String getMethodKey(FastenURI uri)
+    {
+        return uri.getNamespace() + '/' + uri.getEntity();
+    }
+}
@@ -17,6 +17,11 @@
  */
 package eu.fasten.maven;
 
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
@@ -32,6 +37,8 @@ import org.apache.maven.project.ProjectBuildingException;
 import org.apache.maven.project.ProjectBuildingRequest;
 import org.apache.maven.project.ProjectBuildingResult;
 
+import eu.fasten.maven.http.RetryPolicy;
+
 /**
  * Base helper to implement FASTEN related mojos.
  *
@@ -51,6 +58,76 @@ public abstract class AbstractFASTENMojo extends AbstractMojo
     @Parameter(property = "localRepository")
     protected ArtifactRepository localRepository;
 
+    /**
+     * The maximum number of connections kept open to the remote services.
+     */
+    @Parameter(defaultValue = "20", property = "fasten.httpMaxConnections")
+    protected int httpMaxConnections = 20;
+
+    /**
+     * The maximum number of connections kept open to each remote service.
+     */
+    @Parameter(defaultValue = "10", property = "fasten.httpMaxConnectionsPerRoute")
+    protected int httpMaxConnectionsPerRoute = 10;
+
+    /**
+     * The time (in seconds) to wait for a connection to a remote service to be established.
+     */
+    @Parameter(defaultValue = "10", property = "fasten.httpConnectTimeout")
+    protected int httpConnectTimeout = 10;
+
+    /**
+     * The time (in seconds) to wait for data from a remote service before giving up.
+     */
+    @Parameter(defaultValue = "60", property = "fasten.httpReadTimeout")
+    protected int httpReadTimeout = 60;
+
+    /**
+     * The maximum number of times a request rejected because the remote service is overloaded (429) or failing (5xx)
+     * is sent again.
+     */
+    @Parameter(defaultValue = "3", property = "fasten.httpRetries")
+    protected int httpRetries = 3;
+
+    /**
+     * The time (in milliseconds) to wait before sending a failed request again, doubled after each retry.
+     */
+    @Parameter(defaultValue = "1000", property = "fasten.httpRetryInterval")
+    protected long httpRetryInterval = 1000;
+
+    /**
+     * @return a new retry policy, to be shared by all the requests of the execution
+     */
+    protected RetryPolicy createRetryPolicy()
+    {
+        return new RetryPolicy(this.httpRetries, this.httpRetryInterval);
+    }
+
+    /**
+     * @return the configuration of the requests sent to the remote services
+     */
+    protected RequestConfig createRequestConfig()
+    {
+        return RequestConfig.custom().setConnectTimeout(Timeout.ofSeconds(this.httpConnectTimeout))
+            .setResponseTimeout(Timeout.ofSeconds(this.httpReadTimeout)).build();
+    }
+
+    /**
+     * @param retryPolicy decide which failed requests are sent again
+     * @return a new HTTP client reusing its connections, to be shared by all the requests of the execution and closed
+     *         at the end of it
+     */
+    protected CloseableHttpClient createHttpClient(RetryPolicy retryPolicy)
+    {
+        return HttpClients.custom().useSystemProperties()
+            .setDefaultRequestConfig(createRequestConfig())
+            .setRetryStrategy(retryPolicy)
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create().useSystemProperties()
+                .setMaxConnTotal(Math.max(1, this.httpMaxConnections))
+                .setMaxConnPerRoute(Math.max(1, this.httpMaxConnectionsPerRoute)).build())
+            .build();
+    }
+
     protected MavenProject getMavenProject(Artifact artifact) throws MojoExecutionException
     {
         try {
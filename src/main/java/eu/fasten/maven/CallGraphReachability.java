@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import eu.fasten.core.data.MergedDirectedGraph;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLongPair;
+
+/**
+ * Find the nodes of a call graph reachable from a set of nodes.
+ * <p>
+ * The successors of all the nodes are copied once in primitive arrays (compressed sparse rows) so that the traversal
+ * itself only reads arrays and marks the visited nodes in a {@link BitSet}, without allocating anything per node or
+ * edge. The node ids are expected to be dense, which is the case for the graphs produced by the FASTEN merger.
+ *
+ * @version $Id$
+ */
+public class CallGraphReachability
+{
+    /**
+     * Receive the edges of the graph.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer
+    {
+        /**
+         * @param source the calling node
+         * @param target the called node
+         */
+        void accept(int source, int target);
+    }
+
+    private final BitSet nodes;
+
+    private final BitSet externalNodes;
+
+    // The successors of node n are targets[offsets[n]] to targets[offsets[n + 1] - 1]
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    /**
+     * @param graph the graph to traverse
+     */
+    public CallGraphReachability(MergedDirectedGraph graph)
+    {
+        int size = 0;
+        this.nodes = new BitSet();
+        for (LongIterator it = graph.nodes().iterator(); it.hasNext();) {
+            int node = Math.toIntExact(it.nextLong());
+            this.nodes.set(node);
+            size = Math.max(size, node + 1);
+        }
+
+        this.externalNodes = new BitSet(size);
+        for (LongIterator it = graph.externalNodes().iterator(); it.hasNext();) {
+            this.externalNodes.set(Math.toIntExact(it.nextLong()));
+        }
+
+        // Count the successors of each node
+        this.offsets = new int[size + 1];
+        for (LongLongPair edge : graph.edgeSet()) {
+            ++this.offsets[(int) edge.leftLong() + 1];
+        }
+        for (int node = 0; node < size; ++node) {
+            this.offsets[node + 1] += this.offsets[node];
+        }
+
+        // Store the successors
+        this.targets = new int[this.offsets[size]];
+        int[] positions = Arrays.copyOf(this.offsets, size);
+        for (LongLongPair edge : graph.edgeSet()) {
+            this.targets[positions[(int) edge.leftLong()]++] = (int) edge.rightLong();
+        }
+    }
+
+    /**
+     * @param startNodes the nodes from which to start the traversal, the ones which are not part of the graph are
+     *            ignored
+     * @return the nodes reachable from the start nodes (including the start nodes)
+     */
+    public BitSet getReachableNodes(IntIterator startNodes)
+    {
+        BitSet visited = new BitSet(this.offsets.length - 1);
+
+        int[] stack = new int[64];
+        int top = 0;
+
+        while (startNodes.hasNext()) {
+            int start = startNodes.nextInt();
+
+            if (start >= 0 && this.nodes.get(start) && !visited.get(start)) {
+                visited.set(start);
+
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = start;
+
+                while (top > 0) {
+                    int node = stack[--top];
+
+                    for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; ++edge) {
+                        int target = this.targets[edge];
+
+                        if (!visited.get(target)) {
+                            visited.set(target);
+
+                            if (top == stack.length) {
+                                stack = Arrays.copyOf(stack, top * 2);
+                            }
+                            stack[top++] = target;
+                        }
+                    }
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    /**
+     * @param sources the nodes for which to get the outgoing edges
+     * @param consumer called for each outgoing edge of the passed nodes
+     */
+    public void forEachEdge(BitSet sources, EdgeConsumer consumer)
+    {
+        for (int node = sources.nextSetBit(0); node >= 0; node = sources.nextSetBit(node + 1)) {
+            for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; ++edge) {
+                consumer.accept(node, this.targets[edge]);
+            }
+        }
+    }
+
+    /**
+     * @param node the id of the node
+     * @return true if the node is external (not resolved to a known package)
+     */
+    public boolean isExternal(int node)
+    {
+        return this.externalNodes.get(node);
+    }
+}
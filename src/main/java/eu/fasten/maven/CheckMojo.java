@@ -18,12 +18,15 @@
 package eu.fasten.maven;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,6 +35,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -40,12 +52,17 @@ import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.hc.core5.net.URLEncodedUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -60,7 +77,6 @@ import org.json.JSONTokener;
 import eu.fasten.analyzer.javacgopal.data.CGAlgorithm;
 import eu.fasten.analyzer.javacgopal.data.OPALCallGraphConstructor;
 import eu.fasten.analyzer.javacgopal.data.OPALPartialCallGraphConstructor;
-import eu.fasten.core.data.JSONUtils;
 import eu.fasten.core.data.JavaScope;
 import eu.fasten.core.data.PartialJavaCallGraph;
 import eu.fasten.core.data.opal.exceptions.OPALException;
@@ -69,6 +85,18 @@ import eu.fasten.maven.analyzer.RiskAnalyzer;
 import eu.fasten.maven.analyzer.RiskAnalyzerConfiguration;
 import eu.fasten.maven.analyzer.RiskContext;
 import eu.fasten.maven.analyzer.RiskReport;
+import eu.fasten.maven.cache.CallGraphCache;
+import eu.fasten.maven.cache.CallGraphSessionCache;
+import eu.fasten.maven.cache.MetadataCache;
+import eu.fasten.maven.http.AsyncFileDownloader;
+import eu.fasten.maven.http.CircuitBreaker;
+import eu.fasten.maven.http.RetryPolicy;
+import eu.fasten.maven.metrics.ExecutionMetrics;
+import eu.fasten.maven.metrics.MeasuredGraphVisitor;
+import eu.fasten.maven.serialization.BinaryCallGraphSerializer;
+import eu.fasten.maven.serialization.Compression;
+import eu.fasten.maven.serialization.JSONCallGraphReader;
+import eu.fasten.maven.serialization.JSONCallGraphWriter;
 
 import static eu.fasten.analyzer.javacgopal.data.CallPreservationStrategy.ONLY_STATIC_CALLSITES;
 
@@ -92,6 +120,62 @@ public class CheckMojo extends AbstractFASTENMojo
         all
     }
 
+    public enum SerializationFormat
+    {
+        // The standard FASTEN json format
+        json(".json"),
+
+        // A compact binary format, faster to write and read
+        binary(BinaryCallGraphSerializer.EXTENSION);
+
+        private final String extension;
+
+        SerializationFormat(String extension)
+        {
+            this.extension = extension;
+        }
+
+        /**
+         * @return the extension of the serialized call graphs files
+         */
+        public String getExtension()
+        {
+            return this.extension;
+        }
+    }
+
+    private final class CallGraphRequest
+    {
+        final Artifact artifact;
+
+        final File outputFile;
+
+        final File downloadFile;
+
+        final String productName;
+
+        String hash;
+
+        String sessionKey;
+
+        boolean sessionOwner;
+
+        CallGraphRequest(Artifact artifact)
+        {
+            this.artifact = artifact;
+            this.outputFile =
+                toOutputFile(artifact, serializationFormat.getExtension() + compression.getExtension());
+            // The FASTEN server always provides json call graphs
+            this.downloadFile = toOutputFile(artifact, ".json" + compression.getExtension());
+
+            String product = artifact.getGroupId() + ':' + artifact.getArtifactId();
+            if (StringUtils.isNotEmpty(artifact.getClassifier())) {
+                product += artifact.getClassifier();
+            }
+            this.productName = product;
+        }
+    }
+
     @Parameter(defaultValue = "target/call-graphs/")
     private File outputDirectory;
 
@@ -107,9 +191,60 @@ public class CheckMojo extends AbstractFASTENMojo
     @Parameter(defaultValue = "https://api.fasten-project.eu/api", property = "fastenApiUrl")
     private String fastenApiUrl = "https://api.fasten-project.eu/api";
 
+    /**
+     * The maximum number of callables sent in each request to the FASTEN server to resolve metadata. When lower than 1,
+     * all the callables are sent in a single request.
+     */
     @Parameter(defaultValue = "100", property = "fasten.metadataBatch")
     private int metadataBatch = 100;
 
+    /**
+     * The maximum number of concurrent requests sent to the FASTEN server to resolve metadata.
+     */
+    @Parameter(defaultValue = "4", property = "fasten.metadataConcurrency")
+    private int metadataConcurrency = 4;
+
+    /**
+     * True to keep the metadata of the released dependencies in a persistent cache shared by all the builds.
+     */
+    @Parameter(defaultValue = "true", property = "fasten.metadataCache")
+    private boolean metadataCache = true;
+
+    /**
+     * The directory of the persistent metadata cache. Default to a folder of the local repository.
+     */
+    @Parameter(property = "fasten.metadataCacheDirectory")
+    private File metadataCacheDirectory;
+
+    /**
+     * The time (in minutes) during which the cached package metadata (like the known vulnerabilities) are used
+     * without asking the FASTEN server.
+     */
+    @Parameter(defaultValue = "60", property = "fasten.packageMetadataTTL")
+    private long packageMetadataTTL = 60;
+
+    /**
+     * The time (in minutes) during which the cached callable metadata (like the quality metrics) are used without
+     * asking the FASTEN server.
+     */
+    @Parameter(defaultValue = "10080", property = "fasten.callableMetadataTTL")
+    private long callableMetadataTTL = 10080;
+
+    /**
+     * The time (in minutes) during which the callables unknown by the FASTEN server are not asked again. Shorter than
+     * {@link #callableMetadataTTL} since the server might not have finished analyzing the package yet.
+     */
+    @Parameter(defaultValue = "60", property = "fasten.callableMetadataMissTTL")
+    private long callableMetadataMissTTL = 60;
+
+    /**
+     * The number of consecutive failed requests after which the FASTEN server is not used anymore during the build:
+     * the remaining call graphs are built locally and the metadata are not resolved. When lower than 1, the server is
+     * always used.
+     */
+    @Parameter(defaultValue = "5", property = "fasten.circuitBreakerThreshold")
+    private int circuitBreakerThreshold = 5;
+
     @Parameter(defaultValue = "auto", property = "fasten.metadataDownload")
     private MetadataDownload metadataDownload = MetadataDownload.auto;
 
@@ -119,14 +254,110 @@ public class CheckMojo extends AbstractFASTENMojo
     @Parameter(defaultValue = "true", property = "fasten.analyze")
     private boolean analyze = true;
 
+    /**
+     * The format used to store the call graphs in the output directory and the persistent cache.
+     */
+    @Parameter(defaultValue = "json", property = "fasten.serializationFormat")
+    private SerializationFormat serializationFormat = SerializationFormat.json;
+
+    /**
+     * The compression to apply to the call graphs and stitched graphs written in the output directory. The zstd
+     * compression requires com.github.luben:zstd-jni to be added as plugin dependency and fallback on gzip otherwise.
+     */
+    @Parameter(defaultValue = "none", property = "fasten.compression")
+    private Compression compression = Compression.none;
+
+    /**
+     * The number of dependencies call graphs to build or parse in parallel. When lower than 1, fallback on Maven
+     * degree of concurrency (-T option).
+     */
+    @Parameter(defaultValue = "0", property = "fasten.threads")
+    private int threads;
+
+    /**
+     * The maximum number of dependencies call graphs downloads in flight.
+     */
+    @Parameter(defaultValue = "8", property = "fasten.downloadConcurrency")
+    private int downloadConcurrency = 8;
+
+    /**
+     * True to keep the dependencies call graphs in a persistent cache shared by all the builds.
+     */
+    @Parameter(defaultValue = "true", property = "fasten.cache")
+    private boolean cache = true;
+
+    /**
+     * The directory of the persistent call graphs cache. Default to a folder of the local repository.
+     */
+    @Parameter(property = "fasten.cacheDirectory")
+    private File cacheDirectory;
+
+    /**
+     * True to share the call graphs between the modules of the reactor.
+     */
+    @Parameter(defaultValue = "true", property = "fasten.sessionCache")
+    private boolean sessionCache = true;
+
+    /**
+     * The memory (in MB) that the serialized call graphs shared between the modules of the reactor can use. When lower
+     * than 1, fallback on a quarter of the maximum heap size.
+     */
+    @Parameter(defaultValue = "0", property = "fasten.sessionCacheMemory")
+    private int sessionCacheMemory;
+
+    /**
+     * True to reuse the project call graph produced by the previous build when the project file, the configuration
+     * and the plugin did not change.
+     */
+    @Parameter(defaultValue = "true", property = "fasten.upToDateCheck")
+    private boolean upToDateCheck = true;
+
+    /**
+     * True to update the project call graph produced by the previous build by analyzing only the modified classes,
+     * when the hierarchy of the project did not change.
+     */
+    @Parameter(defaultValue = "false", property = "fasten.incremental")
+    private boolean incremental;
+
+    /**
+     * How the nodes of the stitched graph are created: eager (all at once), lazy (each time they are needed, using
+     * less memory on large graphs) or cached (lazy, but kept as long as there is enough memory).
+     */
+    @Parameter(defaultValue = "eager", property = "fasten.graphNodes")
+    private MavenGraph.NodeMode graphNodes = MavenGraph.NodeMode.eager;
+
+    /**
+     * True to measure the time and resources spent in each phase of the execution. The measures are logged and
+     * written in fasten-metrics.json in the output directory.
+     */
+    @Parameter(defaultValue = "true", property = "fasten.metrics")
+    private boolean metrics = true;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
     private List<RiskAnalyzer> analyzersCache;
 
     private Set<String> packageMetadataNames;
 
+    private Set<String> callableMetadataNames;
+
     private Set<String> mavenExtras;
 
     private CloseableHttpClient httpclient;
 
+    private RetryPolicy retryPolicy;
+
+    private CircuitBreaker circuitBreaker;
+
+    private ExecutionMetrics executionMetrics;
+
+    private CallGraphCache callGraphCache;
+
+    private CallGraphSessionCache callGraphSessionCache;
+
+    private MetadataCache metadataCacheStore;
+
     MavenGraph graph;
 
     List<RiskReport> reports;
@@ -143,60 +374,118 @@ public class CheckMojo extends AbstractFASTENMojo
             return;
         }
 
+        // Shared by all the requests of the execution
+        this.retryPolicy = createRetryPolicy();
+        this.circuitBreaker = new CircuitBreaker(this.circuitBreakerThreshold);
         // Switch off remote access when Maven is in offline mode
         if (!this.session.isOffline()) {
-            this.httpclient = HttpClients.createSystem();
+            this.httpclient = createHttpClient(this.retryPolicy);
         }
+        this.executionMetrics = new ExecutionMetrics(this.metrics);
+
+        try (ExecutionMetrics.Measure measure = this.executionMetrics.start("total")) {
+            execute(projectFile);
+        } finally {
+            if (this.httpclient != null) {
+                this.httpclient.close(CloseMode.GRACEFUL);
+                this.httpclient = null;
+            }
 
-        getLog().info("Generating local call graph of the project.");
+            logServerSummary();
 
-        // Build project call graph
-        File projectCallGraphFile = new File(this.outputDirectory, "project.json");
-        MavenExtendedRevisionJavaCallGraph projectCG;
+            if (this.metrics) {
+                reportMetrics();
+            }
+        }
+    }
+
+    private void reportMetrics()
+    {
+        this.executionMetrics.log(getLog());
+
+        File metricsFile = new File(this.outputDirectory, "fasten-metrics.json");
         try {
-            projectCG = buildCallGraph(this.project.getArtifact(), projectCallGraphFile,
-                this.project.getGroupId() + ':' + this.project.getArtifactId());
-        } catch (OPALException e) {
-            throw new MojoExecutionException(
-                "Failed to build a call graph for directory [" + this.project.getBuild().getOutputDirectory() + "]", e);
+            this.executionMetrics.write(metricsFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write the metrics: " + ExceptionUtils.getRootCauseMessage(e));
         }
+    }
 
-        // Build/Get dependencies call graphs
-        List<MavenExtendedRevisionJavaCallGraph> dependenciesCGs = new ArrayList<>(this.project.getArtifacts().size());
-        List<PartialJavaCallGraph> all = new ArrayList<>(this.project.getArtifacts().size() + 1);
-        all.add(projectCG);
-        for (Artifact artifact : this.project.getArtifacts()) {
-            getLog().info("Generating call graphs for dependency [" + artifact + "].");
+    private void logServerSummary()
+    {
+        if (this.retryPolicy.getRetries() > 0) {
+            getLog().warn(this.retryPolicy.getRetries() + " request(s) to remote services had to be retried.");
+        }
+
+        if (this.circuitBreaker.getFailures() > 0) {
+            getLog().warn(this.circuitBreaker.getFailures() + " request(s) to the FASTEN server " + this.fastenApiUrl
+                + " failed.");
+        }
+
+        if (this.circuitBreaker.isOpen()) {
+            getLog().warn("The FASTEN server was considered unavailable after " + this.circuitBreakerThreshold
+                + " consecutive failures: " + this.circuitBreaker.getSkipped()
+                + " request(s) were skipped, the remaining call graphs were built locally and the metadata were not"
+                + " resolved.");
+        }
+    }
+
+    private void serverFailure()
+    {
+        if (this.circuitBreaker.failure()) {
+            getLog().warn("Too many consecutive failures, the FASTEN server " + this.fastenApiUrl
+                + " won't be used anymore during this build.");
+        }
+    }
+
+    private void execute(File projectFile) throws MojoExecutionException, MojoFailureException
+    {
+        if (!this.compression.isAvailable()) {
+            getLog().warn("The " + this.compression + " compression is not available, using gzip instead.");
+
+            this.compression = Compression.gzip;
+        }
+
+        this.callGraphCache = createCallGraphCache();
+        this.callGraphSessionCache = createCallGraphSessionCache();
+        this.metadataCacheStore = createMetadataCache();
+
+        // Build project call graph
+        MavenExtendedRevisionJavaCallGraph projectCG = getProjectCallGraph(projectFile);
+
+        // Share the project call graph with the modules depending on it
+        if (this.callGraphSessionCache != null) {
             try {
-                MavenExtendedRevisionJavaCallGraph mcg = getCallGraph(artifact);
-                if (mcg != null) {
-                    dependenciesCGs.add(mcg);
-                    all.add(mcg);
-                }
-            } catch (Exception e) {
-                getLog().warn("Failed to generate a call graph for artifact [" + artifact + "]: "
-                    + ExceptionUtils.getRootCauseMessage(e));
+                this.callGraphSessionCache.put(getSessionKey(this.project.getArtifact()), projectCG);
+            } catch (IOException e) {
+                getLog().warn("Failed to share the project call graph: " + ExceptionUtils.getRootCauseMessage(e));
             }
         }
 
+        // Build/Get dependencies call graphs
+        List<MavenExtendedRevisionJavaCallGraph> dependenciesCGs;
+        try (ExecutionMetrics.Measure measure = this.executionMetrics.start("dependencies")) {
+            dependenciesCGs = getDependenciesCallGraphs();
+
+            measure.items(dependenciesCGs.size());
+        }
+
         if (this.analyze) {
             // Produce resolved call graphs
             getLog().info("Produce resolved call graphs.");
 
-            this.graph = new MavenGraph(projectCG, dependenciesCGs, getLog());
+            this.graph = new MavenGraph(projectCG, dependenciesCGs, getLog(), this.executionMetrics, this.graphNodes);
             if (this.serialize) {
-                try {
-                    this.graph.serialize(new File(this.outputDirectory, "stitched-graphs"));
+                try (ExecutionMetrics.Measure measure = this.executionMetrics.start("serialization.stitched")) {
+                    this.graph.serialize(new File(this.outputDirectory, "stitched-graphs"), this.compression);
                 } catch (IOException e) {
                     getLog().warn("Failed to serialize the stitched graphs: " + ExceptionUtils.getRootCauseMessage(e));
                 }
             }
 
             // Enrich the stitched call graph
-            try {
+            try (ExecutionMetrics.Measure measure = this.executionMetrics.start("enrichment")) {
                 enrich();
-            } catch (IOException | URISyntaxException e) {
-                getLog().warn("Failed to enrich the stitched graph", e);
             }
 
             // Analyze the stitched call graph
@@ -204,6 +493,288 @@ public class CheckMojo extends AbstractFASTENMojo
         }
     }
 
+    private int getThreads()
+    {
+        if (this.threads > 0) {
+            return this.threads;
+        }
+
+        MavenExecutionRequest request = this.session.getRequest();
+
+        return request != null ? Math.max(1, request.getDegreeOfConcurrency()) : 1;
+    }
+
+    private List<MavenExtendedRevisionJavaCallGraph> getDependenciesCallGraphs() throws MojoExecutionException
+    {
+        List<Artifact> artifacts = new ArrayList<>(this.project.getArtifacts());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(getThreads(), Math.max(1, artifacts.size())));
+
+        // Switch off remote access when Maven is in offline mode
+        AsyncFileDownloader downloader = null;
+        if (!this.session.isOffline() && StringUtils.isNotEmpty(this.fastenApiUrl)) {
+            downloader = new AsyncFileDownloader(this.downloadConcurrency, createRequestConfig(), this.retryPolicy,
+                this.circuitBreaker);
+        }
+
+        try {
+            // Start everything at once: the downloader limits the requests in flight and the executor the local work
+            List<CompletableFuture<MavenExtendedRevisionJavaCallGraph>> futures = new ArrayList<>(artifacts.size());
+            for (Artifact artifact : artifacts) {
+                futures.add(getCallGraph(artifact, downloader, executor));
+            }
+
+            // Collect the call graphs in the dependencies order to keep the stitched graph reproducible
+            List<MavenExtendedRevisionJavaCallGraph> dependenciesCGs = new ArrayList<>(artifacts.size());
+            for (int i = 0; i < artifacts.size(); ++i) {
+                try {
+                    MavenExtendedRevisionJavaCallGraph mcg = futures.get(i).get();
+                    if (mcg != null) {
+                        dependenciesCGs.add(mcg);
+                    }
+                } catch (ExecutionException e) {
+                    getLog().warn("Failed to generate a call graph for artifact [" + artifacts.get(i) + "]: "
+                        + ExceptionUtils.getRootCauseMessage(e.getCause()));
+                }
+            }
+
+            return dependenciesCGs;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new MojoExecutionException("Interrupted while generating the dependencies call graphs", e);
+        } finally {
+            if (downloader != null) {
+                downloader.close();
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private MavenExtendedRevisionJavaCallGraph getProjectCallGraph(File projectFile) throws MojoExecutionException
+    {
+        File projectCallGraphFile = new File(this.outputDirectory,
+            "project" + this.serializationFormat.getExtension() + this.compression.getExtension());
+        File fingerprintFile = new File(this.outputDirectory, "project.fingerprint");
+        File classIndexFile = new File(this.outputDirectory, "project.classes");
+        String product = this.project.getGroupId() + ':' + this.project.getArtifactId();
+
+        String fingerprint = null;
+        String previousFingerprint = null;
+        Map<String, String> previousClassIndex = null;
+        if (this.upToDateCheck && this.serialize) {
+            try {
+                fingerprint = getProjectFingerprint(projectFile);
+
+                if (fingerprintFile.exists()) {
+                    previousFingerprint = FileUtils.readFileToString(fingerprintFile, StandardCharsets.UTF_8);
+
+                    // Reuse the call graph of the previous build when nothing changed
+                    if (fingerprint.equals(previousFingerprint)) {
+                        MavenExtendedRevisionJavaCallGraph projectCG =
+                            readProjectCallGraph(projectCallGraphFile, product);
+                        if (projectCG != null) {
+                            getLog().info("The project call graph is up to date.");
+
+                            return projectCG;
+                        }
+                    }
+                }
+
+                if (this.incremental && classIndexFile.exists()) {
+                    previousClassIndex = IncrementalCallGraphBuilder.readIndex(classIndexFile);
+                }
+
+                // Make sure to not associate a partially written call graph with the new fingerprint
+                Files.deleteIfExists(fingerprintFile.toPath());
+                Files.deleteIfExists(classIndexFile.toPath());
+            } catch (IOException e) {
+                getLog().warn("Failed to check if the project call graph is up to date: "
+                    + ExceptionUtils.getRootCauseMessage(e));
+
+                fingerprint = null;
+            }
+        }
+
+        MavenExtendedRevisionJavaCallGraph projectCG = null;
+
+        // Try to update the previous call graph with the modified classes
+        Map<String, String> classIndex = null;
+        if (this.incremental && fingerprint != null) {
+            try {
+                classIndex = IncrementalCallGraphBuilder.indexClasses(projectFile);
+
+                if (previousClassIndex != null && isSameConfiguration(previousFingerprint, fingerprint)) {
+                    projectCG = updateProjectCallGraph(projectFile, projectCallGraphFile, product,
+                        previousClassIndex, classIndex);
+                }
+            } catch (Exception e) {
+                getLog().warn(
+                    "Failed to update the project call graph: " + ExceptionUtils.getRootCauseMessage(e));
+
+                projectCG = null;
+            }
+        }
+
+        if (projectCG == null) {
+            getLog().info("Generating local call graph of the project.");
+
+            try {
+                projectCG =
+                    buildCallGraph(this.project.getArtifact(), projectFile, projectCallGraphFile, null, product);
+            } catch (OPALException e) {
+                throw new MojoExecutionException("Failed to build a call graph for directory ["
+                    + this.project.getBuild().getOutputDirectory() + "]", e);
+            }
+        }
+
+        // Remember what produced the serialized call graph
+        if (fingerprint != null && projectCallGraphFile.exists()) {
+            try {
+                if (classIndex != null) {
+                    IncrementalCallGraphBuilder.writeIndex(classIndex, classIndexFile);
+                }
+                FileUtils.write(fingerprintFile, fingerprint, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                getLog().warn(
+                    "Failed to write the project call graph fingerprint: " + ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return projectCG;
+    }
+
+    private MavenExtendedRevisionJavaCallGraph updateProjectCallGraph(File projectFile, File projectCallGraphFile,
+        String product, Map<String, String> previousClassIndex, Map<String, String> classIndex)
+        throws IOException, OPALException
+    {
+        MavenExtendedRevisionJavaCallGraph previousCG = readProjectCallGraph(projectCallGraphFile, product);
+        if (previousCG == null) {
+            return null;
+        }
+
+        IncrementalCallGraphBuilder builder = new IncrementalCallGraphBuilder(getLog());
+        MavenExtendedRevisionJavaCallGraph projectCG = builder.update(previousCG, previousClassIndex, projectFile,
+            classIndex, file -> constructCallGraph(this.project.getArtifact(), file, product));
+
+        if (projectCG != null) {
+            writeCallGraph(projectCG, projectCallGraphFile);
+        }
+
+        return projectCG;
+    }
+
+    private boolean isSameConfiguration(String previousFingerprint, String fingerprint)
+    {
+        // The first line is the hash of the project file
+        return previousFingerprint != null && previousFingerprint.substring(previousFingerprint.indexOf('\n'))
+            .equals(fingerprint.substring(fingerprint.indexOf('\n')));
+    }
+
+    private String getProjectFingerprint(File projectFile) throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+
+        // What is analyzed
+        builder.append("file=").append(CallGraphCache.sha256(projectFile)).append('\n');
+        builder.append("artifact=").append(this.project.getArtifact().getId()).append('\n');
+
+        // How it's analyzed
+        builder.append("plugin=").append(this.pluginVersion).append('\n');
+        builder.append("generator=").append(CallGraphCache.getGeneratorVersion()).append('\n');
+        builder.append("algorithm=").append(this.genAlgorithm).append('\n');
+        builder.append("strategy=").append(ONLY_STATIC_CALLSITES).append('\n');
+
+        // How it's stored
+        builder.append("format=").append(this.serializationFormat).append('\n');
+        builder.append("compression=").append(this.compression).append('\n');
+
+        return builder.toString();
+    }
+
+    private MavenExtendedRevisionJavaCallGraph readProjectCallGraph(File projectCallGraphFile, String product)
+    {
+        if (!projectCallGraphFile.exists()) {
+            return null;
+        }
+
+        try {
+            MavenExtendedRevisionJavaCallGraph projectCG = readCallGraph(this.project.getArtifact(),
+                projectCallGraphFile, isRemote(this.project.getVersion(), false));
+
+            if (product.equals(projectCG.product) && this.project.getVersion().equals(projectCG.version)) {
+                return projectCG;
+            }
+        } catch (Exception e) {
+            getLog().warn("Failed to read the previous project call graph [" + projectCallGraphFile + "]: "
+                + ExceptionUtils.getRootCauseMessage(e));
+        }
+
+        return null;
+    }
+
+    private CallGraphCache createCallGraphCache()
+    {
+        if (!this.cache) {
+            return null;
+        }
+
+        File directory = this.cacheDirectory;
+        if (directory == null) {
+            if (this.localRepository == null) {
+                // No local repository to host the cache
+                return null;
+            }
+
+            directory = new File(this.localRepository.getBasedir(), ".cache/fasten/call-graphs");
+        }
+
+        return new CallGraphCache(directory, this.genAlgorithm, ONLY_STATIC_CALLSITES);
+    }
+
+    private MetadataCache createMetadataCache()
+    {
+        if (!this.metadataCache) {
+            return null;
+        }
+
+        File directory = this.metadataCacheDirectory;
+        if (directory == null) {
+            if (this.localRepository == null) {
+                // No local repository to host the cache
+                return null;
+            }
+
+            directory = new File(this.localRepository.getBasedir(), ".cache/fasten/metadata");
+        }
+
+        return new MetadataCache(directory);
+    }
+
+    private CallGraphSessionCache createCallGraphSessionCache()
+    {
+        if (!this.sessionCache) {
+            return null;
+        }
+
+        long maxWeight = this.sessionCacheMemory > 0 ? this.sessionCacheMemory * 1024L * 1024L
+            : Runtime.getRuntime().maxMemory() / 4;
+
+        return CallGraphSessionCache.get(this.session, maxWeight);
+    }
+
+    private String sha256(File file) throws IOException
+    {
+        return this.callGraphSessionCache != null ? this.callGraphSessionCache.sha256(file)
+            : CallGraphCache.sha256(file);
+    }
+
+    private String getSessionKey(Artifact artifact) throws IOException
+    {
+        return this.genAlgorithm + '/' + this.metadataDownload + '/' + artifact.getId() + '/'
+            + sha256(artifact.getFile());
+    }
+
     private File toOutputFile(Artifact artifact, String extension)
     {
         return new File(this.outputDirectory, artifact.getGroupId() + '/' + artifact.getArtifactId() + '/'
@@ -272,14 +843,70 @@ public class CheckMojo extends AbstractFASTENMojo
 
     private void analyze() throws MojoFailureException, MojoExecutionException
     {
-        RiskContext context = new MavenRiskContext(this.graph, this.session, this.project);
+        RiskContext context = new MavenRiskContext(this.graph, this.session, this.project, this.httpclient);
+
+        // Execute analyzers at the same time, each one on its own thread so that the analyzers waiting for remote
+        // services don't delay the others
+        List<RiskAnalyzer> analyzers = getAnalyzers();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, analyzers.size()));
+        try {
+            List<Future<RiskReport>> futures = new ArrayList<>(analyzers.size());
+            List<MavenGraphVisitor> visitors = new ArrayList<>();
+            CompletableFuture<Void> traversal = new CompletableFuture<>();
+            for (RiskAnalyzer riskAnalyzer : analyzers) {
+                getLog().info("Executing analyzer " + riskAnalyzer + "");
+
+                RiskReport report = new RiskReport(riskAnalyzer);
+                MavenGraphVisitor visitor = riskAnalyzer.createVisitor(context, report);
+                if (visitor != null) {
+                    // Share a single traversal of the graph between all the visiting analyzers
+                    if (this.metrics) {
+                        visitor = new MeasuredGraphVisitor(visitor, this.executionMetrics,
+                            "analyzer." + riskAnalyzer.getClass().getSimpleName());
+                    }
+                    visitors.add(visitor);
+                    futures.add(traversal.thenApply(v -> report));
+                } else {
+                    futures.add(executor.submit(() -> {
+                        try (ExecutionMetrics.Measure measure =
+                            this.executionMetrics.start("analyzer." + riskAnalyzer.getClass().getSimpleName())) {
+                            return riskAnalyzer.analyze(context);
+                        }
+                    }));
+                }
+            }
 
-        // Execute analyzers
-        this.reports = new ArrayList<>();
-        for (RiskAnalyzer riskAnalyzer : getAnalyzers()) {
-            getLog().info("Executing analyzer " + riskAnalyzer + "");
+            if (!visitors.isEmpty()) {
+                executor.execute(() -> {
+                    try (ExecutionMetrics.Measure measure = this.executionMetrics.start("analyzer.traversal")) {
+                        measure.items(visitors.size());
 
-            this.reports.add(riskAnalyzer.analyze(context));
+                        this.graph.visitOptimizedGraph(visitors);
+
+                        traversal.complete(null);
+                    } catch (Throwable e) {
+                        traversal.completeExceptionally(e);
+                    }
+                });
+            }
+
+            // Collect the reports in the configuration order
+            this.reports = new ArrayList<>(analyzers.size());
+            for (Future<RiskReport> future : futures) {
+                this.reports.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+
+            throw new MojoExecutionException("Failed to execute analyzer", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new MojoExecutionException("Interrupted while executing the analyzers", e);
+        } finally {
+            executor.shutdownNow();
         }
 
         boolean foundErrors = false;
@@ -296,19 +923,30 @@ public class CheckMojo extends AbstractFASTENMojo
         }
     }
 
-    private void enrich() throws MojoExecutionException, URISyntaxException, IOException
+    private void enrich() throws MojoExecutionException
     {
-        if (this.httpclient == null) {
-            // Offline mode
+        // Switch off remote access when Maven is in offline mode
+        if (this.session.isOffline()) {
             return;
         }
 
-        Set<MavenExtendedRevisionJavaCallGraph> dependencies = enrichStitchedCallables();
-        enrichDependencies(dependencies);
+        if (this.circuitBreaker.isOpen()) {
+            getLog().warn("Skipping the enrichment of the stitched graph, the FASTEN server is not available.");
+
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, this.metadataConcurrency));
+        try {
+            Set<MavenExtendedRevisionJavaCallGraph> dependencies = enrichStitchedCallables(executor);
+            enrichDependencies(dependencies, executor);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private void enrichDependencies(Set<MavenExtendedRevisionJavaCallGraph> dependencies)
-        throws MojoExecutionException, IOException
+    private void enrichDependencies(Set<MavenExtendedRevisionJavaCallGraph> dependencies, Executor executor)
+        throws MojoExecutionException
     {
         Set<String> metadataNames = getPackageMetadataNames();
         if (metadataNames.isEmpty()) {
@@ -316,78 +954,299 @@ public class CheckMojo extends AbstractFASTENMojo
             return;
         }
 
+        boolean licenses = getMavenExtras().contains("licenses");
+
+        // Resolve the dependencies at the same time, a failing dependency does not impact the others
+        List<CompletableFuture<Void>> futures = new ArrayList<>(dependencies.size());
         for (MavenExtendedRevisionJavaCallGraph dependency : dependencies) {
-            getLog().info("Requesting meta data for dependency " + dependency.getArtifact());
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    enrichDependency(dependency, metadataNames, licenses);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor).exceptionally(e -> {
+                getLog().warn("Failed to resolve meta data for dependency " + dependency.getArtifact() + ": "
+                    + ExceptionUtils.getRootCauseMessage(e));
 
-            JSONObject responseData = getMetadataPackage(dependency);
+                return null;
+            }));
+        }
 
-            if (responseData != null) {
-                JSONObject metadata = (JSONObject) responseData.get("metadata");
-                if (metadata != null) {
-                    for (Map.Entry<String, Object> entry : metadata.toMap().entrySet()) {
-                        if (metadataNames.contains(entry.getKey())) {
-                            dependency.getMetadata().put(entry.getKey(), entry.getValue());
-                        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void enrichDependency(MavenExtendedRevisionJavaCallGraph dependency, Set<String> metadataNames,
+        boolean licenses) throws MojoExecutionException, IOException
+    {
+        getLog().info("Requesting meta data for dependency " + dependency.getArtifact());
+
+        JSONObject responseData = getMetadataPackage(dependency);
+
+        if (responseData != null) {
+            JSONObject metadata = (JSONObject) responseData.get("metadata");
+            if (metadata != null) {
+                for (Map.Entry<String, Object> entry : metadata.toMap().entrySet()) {
+                    if (metadataNames.contains(entry.getKey())) {
+                        dependency.getMetadata().put(entry.getKey(), entry.getValue());
                     }
                 }
             }
+        }
 
-            // Resolve extra information
-            if (getMavenExtras().contains("licenses")) {
-                MavenProject artifactProject = getMavenProject(dependency.getArtifact());
+        // Resolve extra information
+        if (licenses) {
+            MavenProject artifactProject = getMavenProject(dependency.getArtifact());
 
-                dependency.setMavenLicenses(artifactProject.getLicenses());
-            }
+            dependency.setMavenLicenses(artifactProject.getLicenses());
         }
     }
 
-    private Set<MavenExtendedRevisionJavaCallGraph> enrichStitchedCallables()
-        throws MojoExecutionException, URISyntaxException, IOException
+    private Set<MavenExtendedRevisionJavaCallGraph> enrichStitchedCallables(Executor executor)
+        throws MojoExecutionException
     {
         Set<MavenExtendedRevisionJavaCallGraph> dependencies = new HashSet<>();
 
         List<MavenGraphNode> nodes = this.graph.getOptimizedNodes();
         getLog().info("Enriching optimized call graph with " + nodes.size() + " callable nodes.");
         Map<String, MavenGraphNode> map = new HashMap<>();
-        JSONArray json = new JSONArray();
+        List<String> uris = new ArrayList<>();
+        Map<MavenExtendedRevisionJavaCallGraph, List<String>> cacheableURIs = new HashMap<>();
+        boolean cacheable = this.metadataCacheStore != null && !getCallableMetadataNames().isEmpty();
         for (MavenGraphNode node : nodes) {
             if (node.getScope() == JavaScope.internalTypes && node.getPackageCG().get().isRemote()) {
-                String fullURI = node.getFullURI();
-                json.put(fullURI);
-                map.put(fullURI, node);
+                MavenExtendedRevisionJavaCallGraph packageCG = node.getPackageCG().get();
 
                 // Remember the dependency package
-                dependencies.add(node.getPackageCG().get());
+                dependencies.add(packageCG);
+
+                String fullURI = node.getFullURI();
+                if (map.put(fullURI, node) == null) {
+                    // Only the metadata of released callables are stable enough to be cached
+                    if (cacheable && !packageCG.getArtifact().isSnapshot()) {
+                        cacheableURIs.computeIfAbsent(packageCG, k -> new ArrayList<>()).add(fullURI);
+                    } else {
+                        uris.add(fullURI);
+                    }
+                }
             }
         }
-        getLog().info("Requesting meta data for " + map.keySet().size() + " callable nodes.");
 
-        if (!map.isEmpty()) {
-            JSONObject responseData = getMetadataCallable(json);
+        // Read the cached metadata of each package at the same time
+        if (!cacheableURIs.isEmpty()) {
+            int cached = 0;
+            for (Map.Entry<MavenExtendedRevisionJavaCallGraph, List<String>> missingURIs : enrichCachedCallables(
+                cacheableURIs, map, executor).entrySet()) {
+                cached += cacheableURIs.get(missingURIs.getKey()).size() - missingURIs.getValue().size();
+                uris.addAll(missingURIs.getValue());
+            }
+            if (cached > 0) {
+                getLog().info("Found meta data for " + cached + " callable nodes in the cache.");
+            }
+        }
+        getLog().info("Requesting meta data for " + uris.size() + " callable nodes.");
 
-            if (responseData != null) {
-                getLog().info("Received meta data for " + responseData.keySet().size() + " callable nodes.");
+        if (!uris.isEmpty() && !getCallableMetadataNames().isEmpty()) {
+            AtomicInteger received = new AtomicInteger();
+            Map<MavenExtendedRevisionJavaCallGraph, Map<String, JSONObject>> receivedCacheable =
+                new ConcurrentHashMap<>();
 
-                for (String uri : responseData.keySet()) {
-                    MavenGraphNode node = map.get(uri);
+            // Send the callables by batch, several batches at the same time
+            int batchSize = this.metadataBatch > 0 ? this.metadataBatch : uris.size();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < uris.size(); i += batchSize) {
+                List<String> batch = uris.subList(i, Math.min(i + batchSize, uris.size()));
+                JSONArray json = new JSONArray(batch);
 
-                    JSONObject metadata = (JSONObject) responseData.get(uri);
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return getMetadataCallable(json);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor).thenAccept(responseData -> {
+                    // Store the metadata as soon as they are received
+                    if (responseData != null) {
+                        received.addAndGet(responseData.keySet().size());
 
-                    node.getLocalNode().getMetadata().putAll(metadata.toMap());
-                }
+                        enrichCallables(responseData, map);
+                        collectCachedCallables(batch, map, cacheableURIs, responseData, receivedCacheable);
+                    }
+                }).exceptionally(e -> {
+                    getLog().warn("Failed to resolve callables metadata: " + ExceptionUtils.getRootCauseMessage(e));
+
+                    return null;
+                }));
             }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            getLog().info("Received meta data for " + received.get() + " callable nodes.");
+
+            storeCachedCallables(receivedCacheable, executor);
         }
 
         return dependencies;
     }
 
+    private void enrichCallables(JSONObject responseData, Map<String, MavenGraphNode> map)
+    {
+        for (String uri : responseData.keySet()) {
+            MavenGraphNode node = map.get(uri);
+
+            if (node != null) {
+                JSONObject metadata = (JSONObject) responseData.get(uri);
+
+                node.getLocalNode().getMetadata().putAll(metadata.toMap());
+            }
+        }
+    }
+
+    private Map<MavenExtendedRevisionJavaCallGraph, List<String>> enrichCachedCallables(
+        Map<MavenExtendedRevisionJavaCallGraph, List<String>> cacheableURIs, Map<String, MavenGraphNode> map,
+        Executor executor) throws MojoExecutionException
+    {
+        Set<String> metadataNames = getCallableMetadataNames();
+
+        Map<MavenExtendedRevisionJavaCallGraph, List<String>> missingURIs = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(cacheableURIs.size());
+        for (Map.Entry<MavenExtendedRevisionJavaCallGraph, List<String>> entry : cacheableURIs.entrySet()) {
+            futures.add(CompletableFuture.runAsync(() -> missingURIs.put(entry.getKey(),
+                enrichCachedCallables(entry.getKey(), entry.getValue(), metadataNames, map)), executor));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        return missingURIs;
+    }
+
+    private List<String> enrichCachedCallables(MavenExtendedRevisionJavaCallGraph packageCG, List<String> uris,
+        Set<String> metadataNames, Map<String, MavenGraphNode> map)
+    {
+        Map<String, MetadataCache.Entry> entries;
+        try {
+            entries = this.metadataCacheStore.getCallables(packageCG.product, packageCG.version, metadataNames);
+        } catch (IOException e) {
+            getLog().warn("Failed to read the cached callables meta data of dependency " + packageCG.getArtifact()
+                + ": " + ExceptionUtils.getRootCauseMessage(e));
+
+            return uris;
+        }
+
+        List<String> missingURIs = new ArrayList<>();
+        for (String uri : uris) {
+            MetadataCache.Entry entry = entries.get(uri);
+
+            // The callables unknown by the server are cached empty
+            if (entry != null && entry.isFresh(
+                (entry.getData().isEmpty() ? this.callableMetadataMissTTL : this.callableMetadataTTL) * 60000L)) {
+                map.get(uri).getLocalNode().getMetadata().putAll(entry.getData().toMap());
+            } else {
+                missingURIs.add(uri);
+            }
+        }
+
+        return missingURIs;
+    }
+
+    private void collectCachedCallables(List<String> uris, Map<String, MavenGraphNode> map,
+        Map<MavenExtendedRevisionJavaCallGraph, List<String>> cacheableURIs, JSONObject responseData,
+        Map<MavenExtendedRevisionJavaCallGraph, Map<String, JSONObject>> receivedCacheable)
+    {
+        for (String uri : uris) {
+            MavenExtendedRevisionJavaCallGraph packageCG = map.get(uri).getPackageCG().get();
+
+            if (cacheableURIs.containsKey(packageCG)) {
+                // Also remember the callables unknown by the server to not ask again for them for a while
+                JSONObject metadata = responseData.optJSONObject(uri);
+                receivedCacheable.computeIfAbsent(packageCG, k -> new ConcurrentHashMap<>()).put(uri,
+                    metadata != null ? metadata : new JSONObject());
+            }
+        }
+    }
+
+    private void storeCachedCallables(Map<MavenExtendedRevisionJavaCallGraph, Map<String, JSONObject>> callables,
+        Executor executor) throws MojoExecutionException
+    {
+        Set<String> metadataNames = getCallableMetadataNames();
+
+        // Write the cached metadata of each package once, at the same time
+        List<CompletableFuture<Void>> futures = new ArrayList<>(callables.size());
+        for (Map.Entry<MavenExtendedRevisionJavaCallGraph, Map<String, JSONObject>> entry : callables.entrySet()) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                MavenExtendedRevisionJavaCallGraph packageCG = entry.getKey();
+                try {
+                    this.metadataCacheStore.storeCallables(packageCG.product, packageCG.version, metadataNames,
+                        entry.getValue());
+                } catch (IOException e) {
+                    getLog().warn("Failed to cache callables meta data of dependency " + packageCG.getArtifact()
+                        + ": " + ExceptionUtils.getRootCauseMessage(e));
+                }
+            }, executor));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+
     private JSONObject getMetadataPackage(MavenExtendedRevisionJavaCallGraph dependency) throws IOException
     {
+        // Only the metadata of released packages are stable enough to be cached
+        MetadataCache.Entry entry = null;
+        if (this.metadataCacheStore != null && !dependency.getArtifact().isSnapshot()) {
+            try {
+                entry = this.metadataCacheStore.getPackage(dependency.product, dependency.version);
+            } catch (IOException e) {
+                getLog().warn("Failed to read the cached meta data of dependency " + dependency.getArtifact() + ": "
+                    + ExceptionUtils.getRootCauseMessage(e));
+            }
+
+            if (entry != null && entry.isFresh(this.packageMetadataTTL * 60000L)) {
+                getLog().debug("Reusing the cached meta data of dependency " + dependency.getArtifact());
+
+                return entry.getData();
+            }
+        }
+
         // Get the list of metadata to retrieve
         HttpGet httpGet = createMetadataPackageRequest(dependency);
-        try (CloseableHttpResponse response = this.httpclient.execute(httpGet)) {
+
+        // Ask the server if the cached metadata changed
+        if (entry != null) {
+            if (entry.getETag() != null) {
+                httpGet.addHeader(HttpHeaders.IF_NONE_MATCH, entry.getETag());
+            }
+            if (entry.getLastModified() != null) {
+                httpGet.addHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.getLastModified());
+            }
+        }
+
+        if (!this.circuitBreaker.allowRequest()) {
+            // Better outdated metadata than nothing
+            return entry != null ? entry.getData() : null;
+        }
+
+        try (ExecutionMetrics.Measure measure = this.executionMetrics.start("enrichment.packages").items(1);
+            CloseableHttpResponse response = executeServerRequest(httpGet)) {
             if (response.getCode() == 200) {
-                return new JSONObject(new JSONTokener(response.getEntity().getContent()));
+                JSONObject responseData = new JSONObject(new JSONTokener(response.getEntity().getContent()));
+
+                if (this.metadataCacheStore != null && !dependency.getArtifact().isSnapshot()) {
+                    storeCachedPackage(dependency, responseData, getHeader(response, HttpHeaders.ETAG),
+                        getHeader(response, HttpHeaders.LAST_MODIFIED));
+                }
+
+                return responseData;
+            } else if (response.getCode() == 304 && entry != null) {
+                getLog().debug("The cached meta data of dependency " + dependency.getArtifact() + " are up to date");
+
+                try {
+                    this.metadataCacheStore.revalidate(entry);
+                } catch (IOException e) {
+                    getLog().warn("Failed to update the cached meta data of dependency " + dependency.getArtifact()
+                        + ": " + ExceptionUtils.getRootCauseMessage(e));
+                }
+
+                return entry.getData();
             } else if (response.getCode() == 404) {
                 getLog().warn("Package " + dependency.getArtifact() + " is not available on " + this.fastenApiUrl);
             } else {
@@ -399,13 +1258,34 @@ public class CheckMojo extends AbstractFASTENMojo
         return null;
     }
 
+    private void storeCachedPackage(MavenExtendedRevisionJavaCallGraph dependency, JSONObject responseData,
+        String etag, String lastModified)
+    {
+        try {
+            this.metadataCacheStore.storePackage(dependency.product, dependency.version, responseData, etag,
+                lastModified);
+        } catch (IOException e) {
+            getLog().warn("Failed to cache the meta data of dependency " + dependency.getArtifact() + ": "
+                + ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    private String getHeader(CloseableHttpResponse response, String name)
+    {
+        Header header = response.getFirstHeader(name);
+
+        return header != null ? header.getValue() : null;
+    }
+
     private JSONObject getMetadataCallable(JSONArray input)
         throws MojoExecutionException, URISyntaxException, IOException
     {
         // Get the list of metadata to retrieve
         HttpPost httpPost = createMetadataCallableRequest(input);
-        if (httpPost != null) {
-            try (CloseableHttpResponse response = this.httpclient.execute(httpPost)) {
+        if (httpPost != null && this.circuitBreaker.allowRequest()) {
+            try (ExecutionMetrics.Measure measure =
+                this.executionMetrics.start("enrichment.callables").items(input.length());
+                CloseableHttpResponse response = executeServerRequest(httpPost)) {
                 if (response.getCode() == 200) {
                     return new JSONObject(new JSONTokener(response.getEntity().getContent()));
                 } else {
@@ -417,6 +1297,26 @@ public class CheckMojo extends AbstractFASTENMojo
         return null;
     }
 
+    private CloseableHttpResponse executeServerRequest(ClassicHttpRequest request) throws IOException
+    {
+        CloseableHttpResponse response;
+        try {
+            response = this.httpclient.execute(request);
+        } catch (IOException e) {
+            serverFailure();
+
+            throw e;
+        }
+
+        if (RetryPolicy.isServerFailure(response.getCode())) {
+            serverFailure();
+        } else {
+            this.circuitBreaker.success();
+        }
+
+        return response;
+    }
+
     private Set<String> getPackageMetadataNames() throws MojoExecutionException
     {
         if (this.packageMetadataNames == null) {
@@ -431,6 +1331,18 @@ public class CheckMojo extends AbstractFASTENMojo
         return this.packageMetadataNames;
     }
 
+    private Set<String> getCallableMetadataNames() throws MojoExecutionException
+    {
+        if (this.callableMetadataNames == null) {
+            this.callableMetadataNames = new HashSet<>();
+            for (RiskAnalyzer analyzers : getAnalyzers()) {
+                this.callableMetadataNames.addAll(analyzers.getCallableMetadatas());
+            }
+        }
+
+        return this.callableMetadataNames;
+    }
+
     private Set<String> getMavenExtras() throws MojoExecutionException
     {
         if (this.mavenExtras == null) {
@@ -451,10 +1363,7 @@ public class CheckMojo extends AbstractFASTENMojo
 
     private HttpPost createMetadataCallableRequest(JSONArray json) throws URISyntaxException, MojoExecutionException
     {
-        Set<String> metadataNames = new HashSet<>();
-        for (RiskAnalyzer analyzers : getAnalyzers()) {
-            metadataNames.addAll(analyzers.getCallableMetadatas());
-        }
+        Set<String> metadataNames = getCallableMetadataNames();
 
         if (metadataNames.isEmpty()) {
             // We don't need any callable metadata
@@ -471,84 +1380,290 @@ public class CheckMojo extends AbstractFASTENMojo
         return httpPost;
     }
 
-    private MavenExtendedRevisionJavaCallGraph getCallGraph(Artifact artifact) throws IOException, OPALException
+    private CompletableFuture<MavenExtendedRevisionJavaCallGraph> getCallGraph(Artifact artifact,
+        AsyncFileDownloader downloader, Executor executor)
     {
-        if (!artifact.getFile().getName().endsWith(".jar")) {
-            throw new IOException("Unsupported type ([" + artifact.getType() + "]) for artifact [" + artifact + "]");
-        }
+        CallGraphRequest request = new CallGraphRequest(artifact);
 
-        File outputFile = toOutputFile(artifact, ".json");
+        return CompletableFuture.supplyAsync(() -> {
+            getLog().info("Generating call graphs for dependency [" + artifact + "].");
 
-        MavenExtendedRevisionJavaCallGraph callGraph = null;
-        try {
-            callGraph = downloadCallGraph(artifact, outputFile);
-        } catch (Exception e) {
-            getLog().warn("Unexpected error code when downloading the artifact call graph", e);
-        }
+            if (!artifact.getFile().getName().endsWith(".jar")) {
+                throw new CompletionException(new IOException(
+                    "Unsupported type ([" + artifact.getType() + "]) for artifact [" + artifact + "]"));
+            }
 
-        if (callGraph == null) {
-            // Fallback on build it locally
+            try {
+                return getSharedCallGraph(request, executor);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).thenCompose(sharedCallGraph -> {
+            if (sharedCallGraph != null) {
+                return sharedCallGraph;
+            }
 
-            String productName = artifact.getGroupId() + ':' + artifact.getArtifactId();
-            if (StringUtils.isNotEmpty(artifact.getClassifier())) {
-                productName += artifact.getClassifier();
+            return CompletableFuture.supplyAsync(() -> {
+                try (ExecutionMetrics.Measure measure = this.executionMetrics.start("dependency.cache")) {
+                    MavenExtendedRevisionJavaCallGraph cachedCallGraph = getCachedCallGraph(request);
+
+                    // Count the cache hits
+                    if (cachedCallGraph != null) {
+                        measure.items(1);
+                    }
+
+                    return cachedCallGraph;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }).thenCompose(callGraph -> {
+            if (callGraph != null) {
+                return CompletableFuture.completedFuture(callGraph);
             }
 
-            callGraph = buildCallGraph(artifact, outputFile, productName);
+            // The local build starts as soon as the server answered it does not have the call graph
+            return downloadCallGraph(request, downloader).thenApplyAsync(downloadedCallGraph -> {
+                try {
+                    return storeOrBuildCallGraph(request, downloadedCallGraph);
+                } catch (OPALException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }).whenComplete((callGraph, e) -> {
+            // Let the other modules waiting for this call graph produce it themselves if it failed
+            if (request.sessionOwner) {
+                this.callGraphSessionCache.release(request.sessionKey);
+            }
+        });
+    }
+
+    private CompletableFuture<MavenExtendedRevisionJavaCallGraph> getSharedCallGraph(CallGraphRequest request,
+        Executor executor) throws IOException
+    {
+        if (this.callGraphSessionCache == null) {
+            return null;
         }
 
-        return callGraph;
+        // Try the call graphs already produced, or being produced, by other modules of the session
+        request.sessionKey = getSessionKey(request.artifact);
+
+        CompletableFuture<MavenExtendedRevisionJavaCallGraph> sharedCallGraph =
+            this.callGraphSessionCache.reserve(request.sessionKey, request.artifact, executor);
+        if (sharedCallGraph == null) {
+            request.sessionOwner = true;
+
+            return null;
+        }
+
+        return sharedCallGraph.thenApply(callGraph -> {
+            if (callGraph != null) {
+                getLog().debug("Reusing the call graph of artifact " + request.artifact + " produced by another module");
+            }
+
+            return callGraph;
+        });
     }
 
-    private MavenExtendedRevisionJavaCallGraph downloadCallGraph(Artifact artifact, File outputFile)
-        throws IOException, URISyntaxException
+    private MavenExtendedRevisionJavaCallGraph getCachedCallGraph(CallGraphRequest request) throws IOException
     {
-        if (this.httpclient == null || StringUtils.isEmpty(this.fastenApiUrl)) {
-            // Offline mode
-            return null;
+        // Try the persistent cache
+        if (this.callGraphCache != null) {
+            request.hash = sha256(request.artifact.getFile());
+
+            MavenExtendedRevisionJavaCallGraph callGraph = getCachedCallGraph(request.artifact, request.hash,
+                request.productName, request.outputFile);
+            if (callGraph != null) {
+                shareCallGraph(request, callGraph);
+
+                return callGraph;
+            }
         }
 
-        URIBuilder builder = new URIBuilder(this.fastenApiUrl + URLEncodedUtils.formatSegments("mvn", "packages",
-            artifact.getGroupId() + ':' + artifact.getArtifactId(), artifact.getVersion(), "rcg"));
+        return null;
+    }
+
+    private MavenExtendedRevisionJavaCallGraph storeOrBuildCallGraph(CallGraphRequest request,
+        MavenExtendedRevisionJavaCallGraph downloadedCallGraph) throws OPALException
+    {
+        MavenExtendedRevisionJavaCallGraph callGraph = downloadedCallGraph;
 
-        // TODO: add qualifier and type support
+        if (callGraph != null) {
+            // Only released call graphs are stable enough on the server side to be cached
+            if (request.hash != null && !request.artifact.isSnapshot()) {
+                try {
+                    MavenExtendedRevisionJavaCallGraph downloaded = callGraph;
+                    this.callGraphCache.store(
+                        this.callGraphCache.getServerEntry(request.hash, this.serializationFormat.getExtension()),
+                        entry -> {
+                            if (this.serializationFormat == SerializationFormat.json) {
+                                Compression.copy(request.downloadFile, entry);
+                            } else {
+                                writeCallGraph(downloaded, entry);
+                            }
+                        });
+                } catch (IOException e) {
+                    getLog().warn("Failed to cache the call graph for artifact [" + request.artifact + "]: "
+                        + ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        } else {
+            // Fallback on build it locally
+            File cacheEntry = request.hash != null
+                ? this.callGraphCache.getLocalEntry(request.hash, this.serializationFormat.getExtension()) : null;
 
-        // Indicate where to find the artifact if it's not available on the FASTEN server yet
-        if (artifact.getRepository() != null) {
-            builder.addParameter("artifactRepository", artifact.getRepository().getUrl());
+            callGraph = buildCallGraph(request.artifact, request.artifact.getFile(), request.outputFile, cacheEntry,
+                request.productName);
         }
 
-        URI uri = builder.build();
+        shareCallGraph(request, callGraph);
 
-        getLog().info("Downloading call graph for artifact " + artifact + " on " + uri);
+        return callGraph;
+    }
 
-        HttpGet httpGet = new HttpGet(uri);
+    private void shareCallGraph(CallGraphRequest request, MavenExtendedRevisionJavaCallGraph callGraph)
+    {
+        if (request.sessionKey != null) {
+            try {
+                this.callGraphSessionCache.put(request.sessionKey, callGraph);
+            } catch (IOException e) {
+                getLog().warn("Failed to share the call graph for artifact [" + request.artifact + "]: "
+                    + ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
 
-        try (CloseableHttpResponse response = this.httpclient.execute(httpGet)) {
-            if (response.getCode() == 200) {
-                // Serialize the json
-                FileUtils.copyInputStreamToFile(response.getEntity().getContent(), outputFile);
+    private MavenExtendedRevisionJavaCallGraph getCachedCallGraph(Artifact artifact, String hash, String productName,
+        File outputFile)
+    {
+        // Prefer the call graph coming from the FASTEN server, as when the cache is empty
+        File entry = this.callGraphCache.getServerEntry(hash, this.serializationFormat.getExtension());
+        boolean auto = true;
+        String expectedProduct = artifact.getGroupId() + ':' + artifact.getArtifactId();
+        if (!entry.exists()) {
+            entry = this.callGraphCache.getLocalEntry(hash, this.serializationFormat.getExtension());
+            auto = false;
+            expectedProduct = productName;
+
+            if (!entry.exists()) {
+                return null;
+            }
+        }
+
+        getLog().debug("Reading cached call graph for artifact " + artifact + " from " + entry);
 
-                // Parse the json
-                try (InputStream stream = new FileInputStream(outputFile)) {
-                    boolean remote = isRemote(artifact.getVersion(), true);
+        try {
+            MavenExtendedRevisionJavaCallGraph callGraph =
+                readCallGraph(artifact, entry, isRemote(artifact.getVersion(), auto));
 
-                    return new MavenExtendedRevisionJavaCallGraph(artifact, stream, remote);
+            // The same file can be published under different coordinates
+            if (expectedProduct.equals(callGraph.product) && artifact.getVersion().equals(callGraph.version)) {
+                if (this.serialize) {
+                    Compression.copy(entry, outputFile);
                 }
-            } else if (response.getCode() == 201 || response.getCode() == 202) {
-                getLog().warn("The artifact is not available yet on the server but an analysis was requested");
-            } else {
-                getLog().warn("Unexpected error code when downloading the artifact call graph: " + response.getCode());
+
+                return callGraph;
             }
+        } catch (Exception e) {
+            getLog().warn(
+                "Failed to read the cached call graph [" + entry + "]: " + ExceptionUtils.getRootCauseMessage(e));
         }
 
         return null;
     }
 
-    private MavenExtendedRevisionJavaCallGraph buildCallGraph(Artifact artifact, File outputFile, String product)
-        throws OPALException
+    private MavenExtendedRevisionJavaCallGraph readCallGraph(Artifact artifact, File file, boolean remote)
+        throws IOException
+    {
+        try (InputStream stream = Compression.newInputStream(file)) {
+            if (Compression.getUncompressedName(file).endsWith(BinaryCallGraphSerializer.EXTENSION)) {
+                return BinaryCallGraphSerializer.read(artifact, stream, remote);
+            }
+
+            return JSONCallGraphReader.read(artifact, stream, remote);
+        }
+    }
+
+    private CompletableFuture<MavenExtendedRevisionJavaCallGraph> downloadCallGraph(CallGraphRequest request,
+        AsyncFileDownloader downloader)
     {
-        return buildCallGraph(artifact, artifact.getFile(), outputFile, product);
+        if (downloader == null) {
+            // Offline mode
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Artifact artifact = request.artifact;
+
+        URI uri;
+        try {
+            URIBuilder builder = new URIBuilder(this.fastenApiUrl + URLEncodedUtils.formatSegments("mvn", "packages",
+                artifact.getGroupId() + ':' + artifact.getArtifactId(), artifact.getVersion(), "rcg"));
+
+            // TODO: add qualifier and type support
+
+            // Indicate where to find the artifact if it's not available on the FASTEN server yet
+            if (artifact.getRepository() != null) {
+                builder.addParameter("artifactRepository", artifact.getRepository().getUrl());
+            }
+
+            uri = builder.build();
+        } catch (URISyntaxException e) {
+            getLog().warn("Failed to create the URI to download the artifact call graph", e);
+
+            return CompletableFuture.completedFuture(null);
+        }
+
+        getLog().info("Downloading call graph for artifact " + artifact + " on " + uri);
+
+        // Parse the json while it's received
+        boolean remote = isRemote(artifact.getVersion(), true);
+        return downloader
+            .download(uri, request.downloadFile, this.compression,
+                stream -> JSONCallGraphReader.read(artifact, stream, remote))
+            .thenApply(download -> {
+                if (download.isSkipped()) {
+                    // The FASTEN server is not available, build it locally
+                    return null;
+                }
+
+                // The download is asynchronous, only the wall time is meaningful
+                this.executionMetrics.addWallTime("dependency.download", download.getTime(),
+                    download.getContent() != null ? 1 : 0);
+
+                if (RetryPolicy.isServerFailure(download.getCode())) {
+                    serverFailure();
+                } else {
+                    this.circuitBreaker.success();
+                }
+
+                if (download.getCode() == 201 || download.getCode() == 202) {
+                    getLog().warn("The artifact is not available yet on the server but an analysis was requested");
+                } else if (download.getCode() != 200) {
+                    getLog().warn(
+                        "Unexpected error code when downloading the artifact call graph: " + download.getCode());
+                }
+
+                return download.getContent();
+            }).exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+                // Only the network and protocol errors mean the server might not be available
+                if (cause instanceof AsyncFileDownloader.ContentException) {
+                    getLog().warn("Failed to read the downloaded call graph of artifact [" + artifact + "]: "
+                        + ExceptionUtils.getRootCauseMessage(cause));
+                } else {
+                    if (cause instanceof IOException || cause instanceof HttpException) {
+                        serverFailure();
+                    }
+
+                    getLog().warn("Unexpected error when downloading the artifact call graph", cause);
+                }
+
+                // Don't leave a partial call graph behind
+                FileUtils.deleteQuietly(request.downloadFile);
+
+                return null;
+            });
     }
 
     private boolean isRemote(String version, boolean auto)
@@ -565,16 +1680,44 @@ public class CheckMojo extends AbstractFASTENMojo
         return remote;
     }
 
+    private MavenExtendedRevisionJavaCallGraph constructCallGraph(Artifact artifact, File file, String product)
+        throws OPALException
+    {
+        String phase = artifact == this.project.getArtifact() ? "project.build" : "dependency.build";
+        try (ExecutionMetrics.Measure measure = this.executionMetrics.start(phase)) {
+            var ocgc = new OPALCallGraphConstructor();
+            var pcgc = new OPALPartialCallGraphConstructor();
+            var input =
+                pcgc.construct(ocgc.construct(file, CGAlgorithm.valueOf(this.genAlgorithm)), ONLY_STATIC_CALLSITES);
+
+            boolean remote = isRemote(artifact.getVersion(), false);
+
+            MavenExtendedRevisionJavaCallGraph callGraph =
+                new MavenExtendedRevisionJavaCallGraph(artifact, product, input.classHierarchy, input.graph, remote);
+
+            measure.items(callGraph.getNodeCount());
+
+            return callGraph;
+        }
+    }
+
     private MavenExtendedRevisionJavaCallGraph buildCallGraph(Artifact artifact, File file, File outputFile,
-        String product) throws OPALException
+        File cacheEntry, String product) throws OPALException
     {
-        var ocgc = new OPALCallGraphConstructor();
-        var pcgc = new OPALPartialCallGraphConstructor();
-        var input = pcgc.construct(ocgc.construct(file, CGAlgorithm.valueOf(this.genAlgorithm)), ONLY_STATIC_CALLSITES);
+        var cg = constructCallGraph(artifact, file, product);
 
-        boolean remote = isRemote(artifact.getVersion(), false);
+        // Remember the call graph in the persistent cache
+        boolean cached = false;
+        if (cacheEntry != null) {
+            try {
+                this.callGraphCache.store(cacheEntry, entry -> writeCallGraph(cg, entry));
 
-        var cg = new MavenExtendedRevisionJavaCallGraph(artifact, product, input.classHierarchy, input.graph, remote);
+                cached = true;
+            } catch (Exception e) {
+                getLog().warn("Failed to cache the call graph for artifact [" + artifact + "]: "
+                    + ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
 
         // Remember the call graph in a file
 
@@ -583,7 +1726,11 @@ public class CheckMojo extends AbstractFASTENMojo
 
         if (this.serialize) {
             try {
-                writeRcgJsonString(cg, outputFile);
+                if (cached) {
+                    Compression.copy(cacheEntry, outputFile);
+                } else {
+                    writeCallGraph(cg, outputFile);
+                }
             } catch (Exception e) {
                 getLog().warn("Failed to serialize the call graph for artifact [" + artifact + "]: "
                     + ExceptionUtils.getRootCauseMessage(e));
@@ -593,8 +1740,29 @@ public class CheckMojo extends AbstractFASTENMojo
         return cg;
     }
 
+    private void writeCallGraph(PartialJavaCallGraph rcg, File outputFile) throws IOException
+    {
+        Compression fileCompression = Compression.fromFile(outputFile);
+
+        try (ExecutionMetrics.Measure measure =
+            this.executionMetrics.start("serialization.callgraph").items(rcg.getNodeCount())) {
+            if (this.serializationFormat == SerializationFormat.binary) {
+                try (OutputStream stream = fileCompression.newOutputStream(outputFile)) {
+                    BinaryCallGraphSerializer.serialize(rcg, stream);
+                }
+            } else if (fileCompression != Compression.none) {
+                try (Writer writer =
+                    new OutputStreamWriter(fileCompression.newOutputStream(outputFile), StandardCharsets.UTF_8)) {
+                    JSONCallGraphWriter.write(rcg, writer);
+                }
+            } else {
+                writeRcgJsonString(rcg, outputFile);
+            }
+        }
+    }
+
     private void writeRcgJsonString(PartialJavaCallGraph rcg, File outputFile) throws IOException
     {
-        FileUtils.write(outputFile, JSONUtils.toJSONString(rcg), StandardCharsets.UTF_8);
+        JSONCallGraphWriter.write(rcg, outputFile);
     }
 }
@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+
+import org.apache.maven.plugin.logging.Log;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.JavaGraph;
+import eu.fasten.core.data.JavaNode;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.core.data.JavaType;
+import eu.fasten.core.data.PartialJavaCallGraph;
+import eu.fasten.core.data.opal.exceptions.OPALException;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+/**
+ * Update the call graph of a project by analyzing only the classes which changed since the previous build.
+ * <p>
+ * The update is only possible when the hierarchy and the methods of the existing types did not change, in which case
+ * only the content of the methods (call sites and metadata) of the modified types needs to be replaced. In all other
+ * cases (added or removed classes, modified super types or methods signatures, etc.) the caller is expected to build
+ * the call graph from scratch.
+ * 
+ * @version $Id$
+ */
+public class IncrementalCallGraphBuilder
+{
+    /**
+     * Build the call graph of a file.
+     */
+    @FunctionalInterface
+    public interface CallGraphConstructor
+    {
+        /**
+         * @param file the file to analyze
+         * @return the call graph
+         * @throws OPALException when failing to build the call graph
+         */
+        PartialJavaCallGraph construct(File file) throws OPALException;
+    }
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private final Log log;
+
+    /**
+     * @param log the logger
+     */
+    public IncrementalCallGraphBuilder(Log log)
+    {
+        this.log = log;
+    }
+
+    /**
+     * @param file the project file
+     * @return the fingerprint of each class of the project file
+     * @throws IOException when failing to read the file
+     */
+    public static Map<String, String> indexClasses(File file) throws IOException
+    {
+        Map<String, String> index = new TreeMap<>();
+
+        try (JarFile jar = new JarFile(file)) {
+            for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+
+                if (!entry.isDirectory() && entry.getName().endsWith(CLASS_EXTENSION)) {
+                    index.put(entry.getName(), Long.toHexString(entry.getCrc()) + ':' + entry.getSize());
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @param index the fingerprint of each class
+     * @param file the file where to store the index
+     * @throws IOException when failing to write the file
+     */
+    public static void writeIndex(Map<String, String> index, File file) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.putAll(index);
+
+        try (OutputStream stream = Files.newOutputStream(file.toPath())) {
+            properties.store(stream, null);
+        }
+    }
+
+    /**
+     * @param file the file where the index is stored
+     * @return the fingerprint of each class
+     * @throws IOException when failing to read the file
+     */
+    public static Map<String, String> readIndex(File file) throws IOException
+    {
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            properties.load(stream);
+        }
+
+        Map<String, String> index = new TreeMap<>();
+        properties.forEach((key, value) -> index.put((String) key, (String) value));
+
+        return index;
+    }
+
+    /**
+     * @param previousCG the call graph produced by the previous build
+     * @param previousIndex the fingerprint of the classes analyzed by the previous build
+     * @param file the new project file
+     * @param index the fingerprint of the classes of the new project file
+     * @param constructor the builder of call graphs
+     * @return the updated call graph, or null if the call graph cannot be updated and need to be rebuilt
+     * @throws IOException when failing to extract the modified classes
+     * @throws OPALException when failing to build the call graph of the modified classes
+     */
+    public MavenExtendedRevisionJavaCallGraph update(MavenExtendedRevisionJavaCallGraph previousCG,
+        Map<String, String> previousIndex, File file, Map<String, String> index, CallGraphConstructor constructor)
+        throws IOException, OPALException
+    {
+        if (!previousIndex.keySet().equals(index.keySet())) {
+            this.log.info("Classes were added or removed, the project call graph needs to be rebuilt.");
+
+            return null;
+        }
+
+        Set<String> modified = index.entrySet().stream()
+            .filter(entry -> !entry.getValue().equals(previousIndex.get(entry.getKey()))).map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+
+        this.log.info("Updating the project call graph for " + modified.size() + " modified classes.");
+
+        JavaGraph graph = previousCG.getGraph();
+        if (!modified.isEmpty()) {
+            // Build a call graph for the modified classes only
+            File modifiedFile = File.createTempFile("fasten-modified", ".jar");
+            PartialJavaCallGraph modifiedCG;
+            try {
+                extract(file, modified, modifiedFile);
+
+                modifiedCG = constructor.construct(modifiedFile);
+            } finally {
+                Files.deleteIfExists(modifiedFile.toPath());
+            }
+
+            graph = merge(previousCG, modifiedCG);
+            if (graph == null) {
+                return null;
+            }
+        }
+
+        return new MavenExtendedRevisionJavaCallGraph(previousCG.getArtifact(), previousCG.product,
+            previousCG.getClassHierarchy(), graph, previousCG.isRemote());
+    }
+
+    private void extract(File file, Set<String> entries, File target) throws IOException
+    {
+        try (JarFile jar = new JarFile(file);
+            JarOutputStream stream = new JarOutputStream(Files.newOutputStream(target.toPath()))) {
+            for (String entryName : entries) {
+                stream.putNextEntry(new ZipEntry(entryName));
+                try (InputStream entryStream = jar.getInputStream(jar.getEntry(entryName))) {
+                    entryStream.transferTo(stream);
+                }
+                stream.closeEntry();
+            }
+        }
+    }
+
+    private JavaGraph merge(MavenExtendedRevisionJavaCallGraph previousCG, PartialJavaCallGraph modifiedCG)
+    {
+        Map<JavaScope, Map<String, JavaType>> hierarchy = previousCG.getClassHierarchy();
+        Map<String, JavaType> internalTypes = hierarchy.get(JavaScope.internalTypes);
+
+        Map<String, JavaType> modifiedTypes = modifiedCG.getClassHierarchy().get(JavaScope.internalTypes);
+
+        // Make sure the modified types can be merged
+        for (Map.Entry<String, JavaType> entry : modifiedTypes.entrySet()) {
+            JavaType previousType = internalTypes.get(entry.getKey());
+
+            if (previousType == null || !isCompatible(previousType, entry.getValue())) {
+                this.log.info("The hierarchy of type [" + entry.getKey()
+                    + "] changed, the project call graph needs to be rebuilt.");
+
+                return null;
+            }
+        }
+
+        // Id of the nodes in the modified call graph -> id of the nodes in the previous call graph
+        Map<Integer, Integer> ids = new HashMap<>();
+
+        // Ids of the methods which content is replaced
+        Set<Integer> modifiedIds = new HashSet<>();
+
+        // Modified types
+        for (Map.Entry<String, JavaType> entry : modifiedTypes.entrySet()) {
+            JavaType previousType = internalTypes.get(entry.getKey());
+
+            Map<String, Integer> previousMethods = indexMethods(previousType);
+            for (Map.Entry<Integer, JavaNode> method : entry.getValue().getMethods().entrySet()) {
+                Integer previousId = previousMethods.get(method.getValue().getUri().toString());
+
+                ids.put(method.getKey(), previousId);
+                modifiedIds.add(previousId);
+
+                // Update the metadata of the method (lines, etc.)
+                Map<Object, Object> metadata = previousType.getMethods().get(previousId).getMetadata();
+                metadata.clear();
+                metadata.putAll(method.getValue().getMetadata());
+            }
+        }
+
+        // Types referenced by the modified types
+        int nextId = getMaxId(hierarchy) + 1;
+        for (Map.Entry<JavaScope, Map<String, JavaType>> scope : modifiedCG.getClassHierarchy().entrySet()) {
+            if (scope.getKey() != JavaScope.internalTypes) {
+                nextId = mergeTypes(scope.getKey(), scope.getValue(), hierarchy, ids, nextId);
+            }
+        }
+
+        // Replace the call sites of the modified methods
+        Map<IntIntPair, Map<Object, Object>> callSites = new HashMap<>();
+        for (Map.Entry<IntIntPair, Map<Object, Object>> callSite : previousCG.getGraph().getCallSites().entrySet()) {
+            if (!modifiedIds.contains(callSite.getKey().leftInt())) {
+                callSites.put(callSite.getKey(), callSite.getValue());
+            }
+        }
+        for (Map.Entry<IntIntPair, Map<Object, Object>> callSite : modifiedCG.getGraph().getCallSites().entrySet()) {
+            callSites.put(IntIntPair.of(ids.get(callSite.getKey().leftInt()), ids.get(callSite.getKey().rightInt())),
+                callSite.getValue());
+        }
+
+        return new JavaGraph(callSites);
+    }
+
+    private int mergeTypes(JavaScope scope, Map<String, JavaType> types,
+        Map<JavaScope, Map<String, JavaType>> hierarchy, Map<Integer, Integer> ids, int firstId)
+    {
+        int nextId = firstId;
+
+        Map<String, JavaType> internalTypes = hierarchy.get(JavaScope.internalTypes);
+        Map<String, JavaType> scopeTypes = hierarchy.get(scope);
+
+        for (Map.Entry<String, JavaType> entry : types.entrySet()) {
+            // Unmodified types of the project are seen as external by the modified classes
+            Map<String, Integer> internalMethods = indexMethods(internalTypes.get(entry.getKey()));
+
+            JavaType previousType = scopeTypes != null ? scopeTypes.get(entry.getKey()) : null;
+            Map<String, Integer> previousMethods = indexMethods(previousType);
+
+            Map<Integer, JavaNode> newMethods = new HashMap<>();
+            for (Map.Entry<Integer, JavaNode> method : entry.getValue().getMethods().entrySet()) {
+                String uri = method.getValue().getUri().toString();
+
+                Integer id = internalMethods.get(uri);
+                if (id == null) {
+                    id = previousMethods.get(uri);
+                }
+                if (id == null) {
+                    id = nextId++;
+                    newMethods.put(id, method.getValue());
+                }
+
+                ids.put(method.getKey(), id);
+            }
+
+            if (!newMethods.isEmpty()) {
+                if (previousType != null) {
+                    previousType.getMethods().putAll(newMethods);
+                } else {
+                    // Reuse the type with the new ids
+                    Map<Integer, JavaNode> methods = entry.getValue().getMethods();
+                    methods.clear();
+                    methods.putAll(newMethods);
+
+                    hierarchy.computeIfAbsent(scope, k -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+                    scopeTypes = hierarchy.get(scope);
+                }
+            }
+        }
+
+        return nextId;
+    }
+
+    private boolean isCompatible(JavaType previousType, JavaType modifiedType)
+    {
+        // Same direct super class (the modified call graph does not know the rest of the hierarchy)
+        FastenURI previousSuperClass =
+            previousType.getSuperClasses().isEmpty() ? null : previousType.getSuperClasses().getFirst();
+        FastenURI modifiedSuperClass =
+            modifiedType.getSuperClasses().isEmpty() ? null : modifiedType.getSuperClasses().getFirst();
+        if (!Objects.equals(Objects.toString(previousSuperClass, null), Objects.toString(modifiedSuperClass, null))) {
+            return false;
+        }
+
+        // Same direct interfaces
+        if (!toStrings(previousType.getSuperInterfaces()).equals(toStrings(modifiedType.getSuperInterfaces()))) {
+            return false;
+        }
+
+        // Same methods
+        return indexMethods(previousType).keySet().equals(indexMethods(modifiedType).keySet());
+    }
+
+    private Set<String> toStrings(Iterable<FastenURI> uris)
+    {
+        Set<String> strings = new HashSet<>();
+        uris.forEach(uri -> strings.add(uri.toString()));
+
+        return strings;
+    }
+
+    private Map<String, Integer> indexMethods(JavaType type)
+    {
+        if (type == null) {
+            return Map.of();
+        }
+
+        Map<String, Integer> methods = new HashMap<>();
+        type.getMethods().forEach((id, node) -> methods.put(node.getUri().toString(), id));
+
+        return methods;
+    }
+
+    private int getMaxId(Map<JavaScope, Map<String, JavaType>> hierarchy)
+    {
+        int max = -1;
+        for (Map<String, JavaType> types : hierarchy.values()) {
+            for (JavaType type : types.values()) {
+                for (Integer id : type.getMethods().keySet()) {
+                    max = Math.max(max, id);
+                }
+            }
+        }
+
+        return max;
+    }
+}
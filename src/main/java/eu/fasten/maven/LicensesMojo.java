@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.License;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -80,8 +81,8 @@ public class LicensesMojo extends AbstractFASTENMojo
         }
 
         List<LicenseResult> results;
-        try {
-            results = LicenseRiskAnalyzer.get(inboundLicenses.keySet(), outboundLicenses);
+        try (CloseableHttpClient httpclient = createHttpClient(createRetryPolicy())) {
+            results = LicenseRiskAnalyzer.get(inboundLicenses.keySet(), outboundLicenses, httpclient);
         } catch (Exception e) {
             throw new MojoExecutionException("Failed to resolve license names to SPDX", e);
         }
@@ -35,6 +35,7 @@ import eu.fasten.core.data.JavaGraph;
 import eu.fasten.core.data.JavaScope;
 import eu.fasten.core.data.JavaType;
 import eu.fasten.core.data.PartialJavaCallGraph;
+import eu.fasten.maven.serialization.JSONCallGraphReader;
 
 /**
  * Extends {@link ExtendedRevisionJavaCallGraph} to add Maven specific information.
@@ -61,7 +62,28 @@ public class MavenExtendedRevisionJavaCallGraph extends PartialJavaCallGraph
     public MavenExtendedRevisionJavaCallGraph(Artifact artifact, String product, final EnumMap<JavaScope,Map<String, JavaType>> classHierarchy,
             final JavaGraph graph, boolean remote)
     {
-        super(Constants.mvnForge, product, artifact.getVersion(), new Date().getTime(), Constants.opalGenerator, classHierarchy, graph);
+        this(artifact, Constants.mvnForge, product, artifact.getVersion(), new Date().getTime(), Constants.opalGenerator,
+            classHierarchy, graph, remote);
+    }
+
+    /**
+     * Creates {@link ExtendedRevisionJavaCallGraph} with the given header, class hierarchy and graph.
+     *
+     * @param artifact the {@link Maven} artifact
+     * @param forge the forge of the call graph
+     * @param product the product of the call graph
+     * @param version the version of the product
+     * @param timestamp the timestamp of the call graph
+     * @param generator the generator of the call graph
+     * @param classHierarchy the class hierarchy
+     * @param graph the call sites
+     * @param remote true if the call graph might contain remote metadata
+     */
+    public MavenExtendedRevisionJavaCallGraph(Artifact artifact, String forge, String product, String version,
+        long timestamp, String generator, final EnumMap<JavaScope, Map<String, JavaType>> classHierarchy,
+        final JavaGraph graph, boolean remote)
+    {
+        super(forge, product, version, timestamp, generator, classHierarchy, graph);
 
         this.artifact = artifact;
         this.remote = remote;
@@ -69,6 +91,8 @@ public class MavenExtendedRevisionJavaCallGraph extends PartialJavaCallGraph
 
     /**
      * Creates {@link ExtendedRevisionJavaCallGraph} with the given json content.
+     * <p>
+     * The json tree of the whole document is built in memory, see {@link JSONCallGraphReader} to avoid it.
      * 
      * @param artifact the {@link Maven} artifact
      * @param content the json content to parse
@@ -76,7 +100,19 @@ public class MavenExtendedRevisionJavaCallGraph extends PartialJavaCallGraph
      */
     public MavenExtendedRevisionJavaCallGraph(Artifact artifact, InputStream content, boolean remote)
     {
-        super(new JSONObject(new JSONTokener(content)));
+        this(artifact, new JSONObject(new JSONTokener(content)), remote);
+    }
+
+    /**
+     * Creates {@link ExtendedRevisionJavaCallGraph} with the given json object.
+     * 
+     * @param artifact the {@link Maven} artifact
+     * @param json the json object to parse
+     * @param remote true if the call graph might contain remote metadata
+     */
+    public MavenExtendedRevisionJavaCallGraph(Artifact artifact, JSONObject json, boolean remote)
+    {
+        super(json);
 
         this.artifact = artifact;
         this.remote = remote;
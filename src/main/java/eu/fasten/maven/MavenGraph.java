@@ -17,22 +17,29 @@
  */
 package eu.fasten.maven;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.collections4.ListUtils;
 import org.apache.maven.plugin.logging.Log;
-import org.jgrapht.traverse.DepthFirstIterator;
 
 import eu.fasten.core.data.DirectedGraph;
 import eu.fasten.core.data.FastenJavaURI;
@@ -42,15 +49,149 @@ import eu.fasten.core.data.JavaScope;
 import eu.fasten.core.data.JavaType;
 import eu.fasten.core.data.MergedDirectedGraph;
 import eu.fasten.core.merge.CGMerger;
+import eu.fasten.maven.metrics.ExecutionMetrics;
+import eu.fasten.maven.serialization.Compression;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.longs.LongLongPair;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 /**
  * Create and navigate an optimized call graph.
+ * <p>
+ * The graph is not modified once created, so it can be read from several threads at the same time (the metadata
+ * associated to the nodes are only modified while enriching the graph, before it's analyzed).
  * 
  * @version $Id$
  */
 public class MavenGraph
 {
+    /**
+     * How the {@link MavenGraphNode}s are created.
+     *
+     * @version $Id$
+     */
+    public enum NodeMode
+    {
+        // All the nodes are created with the graph
+        eager,
+
+        // The nodes are created each time they are requested, only the ids needed to find them are kept in memory
+        lazy,
+
+        // Same as lazy, but the created nodes are kept as long as there is enough memory
+        cached
+    }
+
+    private static final int EXTERNAL = -1;
+
+    private static final int UNRESOLVED = -2;
+
+    /**
+     * The minimum information needed to create a node when it's requested.
+     * 
+     * @version $Id$
+     */
+    private static final class LazyNodes
+    {
+        private final MavenExtendedRevisionJavaCallGraph[] packageCGs;
+
+        private final JavaNode[][] packageNodes;
+
+        // The index of the package of each node, or EXTERNAL or UNRESOLVED
+        private final int[] nodePackages;
+
+        // The local id of each node in its package, or the index of its URI in externalURIs
+        private final int[] nodeLocalIds;
+
+        private final List<String> externalURIs = new ArrayList<>();
+
+        private final AtomicReferenceArray<SoftReference<MavenGraphNode>> cache;
+
+        LazyNodes(MavenExtendedRevisionJavaCallGraph[] packageCGs, JavaNode[][] packageNodes, int size, boolean cache)
+        {
+            this.packageCGs = packageCGs;
+            this.packageNodes = packageNodes;
+            this.nodePackages = new int[size];
+            this.nodeLocalIds = new int[size];
+            this.cache = cache ? new AtomicReferenceArray<>(size) : null;
+
+            Arrays.fill(this.nodePackages, UNRESOLVED);
+        }
+
+        void setInternal(long globalId, int packageIndex, int localId)
+        {
+            this.nodePackages[(int) globalId] = packageIndex;
+            this.nodeLocalIds[(int) globalId] = localId;
+        }
+
+        void setExternal(long globalId, String uri)
+        {
+            this.nodePackages[(int) globalId] = EXTERNAL;
+            this.nodeLocalIds[(int) globalId] = this.externalURIs.size();
+            this.externalURIs.add(uri);
+        }
+
+        LongList getIds()
+        {
+            LongList ids = new LongArrayList();
+            for (int id = 0; id < this.nodePackages.length; ++id) {
+                if (this.nodePackages[id] != UNRESOLVED) {
+                    ids.add(id);
+                }
+            }
+
+            return ids;
+        }
+
+        MavenGraphNode get(long globalId)
+        {
+            if (globalId < 0 || globalId >= this.nodePackages.length) {
+                return null;
+            }
+
+            int id = (int) globalId;
+            int packageIndex = this.nodePackages[id];
+
+            if (packageIndex == UNRESOLVED) {
+                return null;
+            }
+
+            if (this.cache != null) {
+                SoftReference<MavenGraphNode> reference = this.cache.get(id);
+                MavenGraphNode node = reference != null ? reference.get() : null;
+                if (node != null) {
+                    return node;
+                }
+            }
+
+            MavenGraphNode node;
+            if (packageIndex == EXTERNAL) {
+                node = new MavenGraphNode(globalId, JavaScope.externalTypes,
+                    new JavaNode(FastenJavaURI.create(this.externalURIs.get(this.nodeLocalIds[id])), null), null);
+            } else {
+                node = new MavenGraphNode(globalId, JavaScope.internalTypes,
+                    this.packageNodes[packageIndex][this.nodeLocalIds[id]], this.packageCGs[packageIndex]);
+            }
+
+            if (this.cache != null) {
+                // Another thread might have created the same node in the meantime, which is harmless
+                this.cache.set(id, new SoftReference<>(node));
+            }
+
+            return node;
+        }
+    }
+
     private final MavenExtendedRevisionJavaCallGraph projectRCG;
 
     private final List<MavenExtendedRevisionJavaCallGraph> fullDependenciesCGs;
@@ -63,16 +204,52 @@ public class MavenGraph
 
     private final MergedDirectedGraph optimizedGraph;
 
-    private Map<Long, MavenGraphNode> graphIdToNode = new HashMap<>();
+    private final NodeMode nodeMode;
 
-    private Map<String, Map<FastenURI, Long>> localProductURIToGraphId = new HashMap<>();
+    private final Long2ObjectMap<MavenGraphNode> graphIdToNode = new Long2ObjectOpenHashMap<>();
+
+    private LazyNodes lazyNodes;
+
+    private int nodeCount;
+
+    private final Map<String, Object2LongMap<FastenURI>> localProductURIToGraphId = new HashMap<>();
 
     private final Log log;
 
+    private final ExecutionMetrics metrics;
+
     public MavenGraph(MavenExtendedRevisionJavaCallGraph projectRCG,
         List<MavenExtendedRevisionJavaCallGraph> dependencyRCGs, Log log)
+    {
+        this(projectRCG, dependencyRCGs, log, new ExecutionMetrics());
+    }
+
+    /**
+     * @param projectRCG the call graph of the project
+     * @param dependencyRCGs the call graphs of the project dependencies
+     * @param log the log where to report the progress
+     * @param metrics where to record the time and resources spent building the graph
+     */
+    public MavenGraph(MavenExtendedRevisionJavaCallGraph projectRCG,
+        List<MavenExtendedRevisionJavaCallGraph> dependencyRCGs, Log log, ExecutionMetrics metrics)
+    {
+        this(projectRCG, dependencyRCGs, log, metrics, NodeMode.eager);
+    }
+
+    /**
+     * @param projectRCG the call graph of the project
+     * @param dependencyRCGs the call graphs of the project dependencies
+     * @param log the log where to report the progress
+     * @param metrics where to record the time and resources spent building the graph
+     * @param nodeMode how the nodes are created
+     */
+    public MavenGraph(MavenExtendedRevisionJavaCallGraph projectRCG,
+        List<MavenExtendedRevisionJavaCallGraph> dependencyRCGs, Log log, ExecutionMetrics metrics,
+        NodeMode nodeMode)
     {
         this.log = log;
+        this.metrics = metrics;
+        this.nodeMode = nodeMode;
         this.projectRCG = projectRCG;
         this.fullDependenciesCGs = new ArrayList<>(dependencyRCGs);
         this.optimizedDependenciesCGs = new HashSet<>();
@@ -95,39 +272,156 @@ public class MavenGraph
 
         this.log.info("Creating optimized call graph");
 
-        this.optimizedGraph = createOptimizeGraph();
+        try (ExecutionMetrics.Measure measure = this.metrics.start("graph.optimize")) {
+            this.optimizedGraph = createOptimizeGraph();
+
+            measure.items(this.optimizedGraph.numNodes());
+        }
     }
 
     private void index(CGMerger merger)
     {
-        for (Map.Entry<Long, String> entry : merger.getAllUris().entrySet()) {
-            FastenJavaURI fullURI = FastenJavaURI.create(entry.getValue());
+        Map<Long, String> uris = merger.getAllUris();
+
+        long[] graphIds = new long[uris.size()];
+        String[] fullURIs = new String[uris.size()];
+        long maxGraphId = -1;
+        int i = 0;
+        for (Map.Entry<Long, String> entry : uris.entrySet()) {
+            graphIds[i] = entry.getKey();
+            fullURIs[i] = entry.getValue();
+            maxGraphId = Math.max(maxGraphId, graphIds[i]);
+            ++i;
+        }
+
+        // Index the methods of each package only once
+        MavenExtendedRevisionJavaCallGraph[] packageCGs =
+            this.packages.values().toArray(new MavenExtendedRevisionJavaCallGraph[0]);
+        Object2IntMap<String> packageIndexes = new Object2IntOpenHashMap<>(packageCGs.length);
+        packageIndexes.defaultReturnValue(UNRESOLVED);
+        JavaNode[][] packageNodes = new JavaNode[packageCGs.length][];
+        List<Object2IntMap<String>> packageMethods = new ArrayList<>(Collections.nCopies(packageCGs.length, null));
+        for (int packageIndex = 0; packageIndex < packageCGs.length; ++packageIndex) {
+            packageIndexes.put(packageCGs[packageIndex].product, packageIndex);
+        }
+        IntStream.range(0, packageCGs.length).parallel().forEach(packageIndex -> {
+            packageNodes[packageIndex] = indexLocalNodes(packageCGs[packageIndex]);
+            packageMethods.set(packageIndex,
+                indexMethods(packageCGs[packageIndex], packageNodes[packageIndex].length));
+        });
+
+        // Parsing and resolving the URIs is independent for each node, so it's done in parallel
+        int[] nodePackages = new int[graphIds.length];
+        int[] nodeLocalIds = new int[graphIds.length];
+        MavenGraphNode[] nodes = this.nodeMode == NodeMode.eager ? new MavenGraphNode[graphIds.length] : null;
+        IntStream.range(0, graphIds.length).parallel().forEach(index -> {
+            FastenJavaURI fullURI = FastenJavaURI.create(fullURIs[index]);
 
             if (fullURI.getProduct() == null) {
-                this.graphIdToNode.put(entry.getKey(),
-                    new MavenGraphNode(entry.getKey(), JavaScope.externalTypes, new JavaNode(fullURI, null), null));
+                nodePackages[index] = EXTERNAL;
+
+                if (nodes != null) {
+                    nodes[index] = new MavenGraphNode(graphIds[index], JavaScope.externalTypes,
+                        new JavaNode(fullURI, null), null);
+                }
             } else {
-                MavenExtendedRevisionJavaCallGraph cg = this.packages.get(fullURI.getProduct());
+                int packageIndex = packageIndexes.getInt(fullURI.getProduct());
+                int localId =
+                    packageIndex != UNRESOLVED ? packageMethods.get(packageIndex).getInt(getMethodKey(fullURI)) : -1;
 
-                JavaType type = cg.getClassHierarchy().get(JavaScope.internalTypes).get(FastenJavaURI
-                    .createWithoutFunction("/" + fullURI.getNamespace() + "/" + fullURI.getClassName()).toString());
-                if (type != null) {
-                    Optional<JavaNode> nodeOptional = type.getMethods().values().stream()
-                        .filter(n -> n.getUri().getEntity().equals(fullURI.getEntity())).findFirst();
+                if (localId != -1) {
+                    nodePackages[index] = packageIndex;
+                    nodeLocalIds[index] = localId;
 
-                    if (nodeOptional.isPresent()) {
-                        JavaNode node = nodeOptional.get();
+                    if (nodes != null) {
+                        nodes[index] = new MavenGraphNode(graphIds[index], JavaScope.internalTypes,
+                            packageNodes[packageIndex][localId], packageCGs[packageIndex]);
+                    }
+                } else {
+                    nodePackages[index] = UNRESOLVED;
+                }
+            }
+        });
 
-                        Map<FastenURI, Long> product =
-                            this.localProductURIToGraphId.computeIfAbsent(fullURI.getProduct(), k -> new HashMap<>());
+        if (this.nodeMode != NodeMode.eager) {
+            this.lazyNodes = new LazyNodes(packageCGs, packageNodes, Math.toIntExact(maxGraphId + 1),
+                this.nodeMode == NodeMode.cached);
+        }
 
-                        product.put(node.getUri(), entry.getKey());
-                        this.graphIdToNode.put(entry.getKey(),
-                            new MavenGraphNode(entry.getKey(), JavaScope.internalTypes, node, cg));
-                    }
+        // Fill the indexes in the merger order to get exactly the same result as a sequential build
+        for (i = 0; i < graphIds.length; ++i) {
+            int packageIndex = nodePackages[i];
+
+            if (packageIndex != UNRESOLVED) {
+                if (packageIndex != EXTERNAL) {
+                    Object2LongMap<FastenURI> product = this.localProductURIToGraphId
+                        .computeIfAbsent(packageCGs[packageIndex].product, k -> newURIToGraphIdMap());
+
+                    product.put(packageNodes[packageIndex][nodeLocalIds[i]].getUri(), graphIds[i]);
+                }
+
+                if (nodes != null) {
+                    this.graphIdToNode.put(graphIds[i], nodes[i]);
+                } else if (packageIndex == EXTERNAL) {
+                    this.lazyNodes.setExternal(graphIds[i], fullURIs[i]);
+                } else {
+                    this.lazyNodes.setInternal(graphIds[i], packageIndex, nodeLocalIds[i]);
                 }
+
+                ++this.nodeCount;
+            }
+        }
+    }
+
+    private static JavaNode[] indexLocalNodes(MavenExtendedRevisionJavaCallGraph cg)
+    {
+        Collection<JavaType> types = cg.getClassHierarchy().get(JavaScope.internalTypes).values();
+
+        int size = 0;
+        for (JavaType type : types) {
+            for (int localId : type.getMethods().keySet()) {
+                size = Math.max(size, localId + 1);
+            }
+        }
+
+        JavaNode[] nodes = new JavaNode[size];
+        for (JavaType type : types) {
+            for (Map.Entry<Integer, JavaNode> method : type.getMethods().entrySet()) {
+                nodes[method.getKey()] = method.getValue();
+            }
+        }
+
+        return nodes;
+    }
+
+    private static Object2IntMap<String> indexMethods(MavenExtendedRevisionJavaCallGraph cg, int size)
+    {
+        Object2IntMap<String> methods = new Object2IntOpenHashMap<>(size);
+        methods.defaultReturnValue(-1);
+
+        for (JavaType type : cg.getClassHierarchy().get(JavaScope.internalTypes).values()) {
+            for (Map.Entry<Integer, JavaNode> method : type.getMethods().entrySet()) {
+                // Keep the first method of the type if several methods share the same entity, as the previous scan of
+                // the type methods did
+                methods.putIfAbsent(getMethodKey(method.getValue().getUri()), method.getKey().intValue());
             }
         }
+
+        return methods;
+    }
+
+    private static String getMethodKey(FastenURI uri)
+    {
+        // The entity starts with the class name, so the namespace and the entity identify the method in a package
+        return uri.getNamespace() + '/' + uri.getEntity();
+    }
+
+    private static Object2LongMap<FastenURI> newURIToGraphIdMap()
+    {
+        Object2LongMap<FastenURI> map = new Object2LongOpenHashMap<>();
+        map.defaultReturnValue(-1);
+
+        return map;
     }
 
     private MergedDirectedGraph createFullGraph()
@@ -136,10 +430,19 @@ public class MavenGraph
             new CGMerger(ListUtils.union(Collections.singletonList(this.projectRCG), this.fullDependenciesCGs), true);
 
         // Generate the graph
-        MergedDirectedGraph graph = (MergedDirectedGraph) merger.mergeAllDeps();
+        MergedDirectedGraph graph;
+        try (ExecutionMetrics.Measure measure = this.metrics.start("graph.merge")) {
+            graph = (MergedDirectedGraph) merger.mergeAllDeps();
+
+            measure.items(graph.numNodes());
+        }
 
         // Store the generated mapping between the node id and its full URL
-        index(merger);
+        try (ExecutionMetrics.Measure measure = this.metrics.start("graph.index")) {
+            index(merger);
+
+            measure.items(this.nodeCount);
+        }
 
         return graph;
     }
@@ -148,36 +451,32 @@ public class MavenGraph
     {
         MergedDirectedGraph graph = new MergedDirectedGraph();
 
-        // Get main project sources
-        Set<Long> startVertices = this.projectRCG.getGraph().getCallSites().keySet().stream()
-            .map(link -> (long) link.leftInt()).collect(Collectors.toSet());
-
-        DepthFirstIterator<Long, LongLongPair> iterator = new DepthFirstIterator<>(this.fullGraph, startVertices);
-
-        while (iterator.hasNext()) {
-            long edge = iterator.next();
+        CallGraphReachability reachability = new CallGraphReachability(this.fullGraph);
 
-            getNode(edge).getPackageCG().ifPresent(this.optimizedDependenciesCGs::add);
-
-            addNode(edge, graph);
+        // Start from the main project sources (the project is the first merged call graph, its local ids are also the
+        // global ids)
+        IntList startNodes = new IntArrayList();
+        for (IntIntPair link : this.projectRCG.getGraph().getCallSites().keySet()) {
+            startNodes.add(link.leftInt());
+        }
+        BitSet reachable = reachability.getReachableNodes(startNodes.iterator());
 
-            for (Long successor : this.fullGraph.successors(edge)) {
-                addNode(successor, graph);
+        for (int node = reachable.nextSetBit(0); node >= 0; node = reachable.nextSetBit(node + 1)) {
+            MavenGraphNode graphNode = getNode(node);
+            if (graphNode != null) {
+                graphNode.getPackageCG().ifPresent(this.optimizedDependenciesCGs::add);
+            }
 
-                graph.addEdge(edge, successor);
+            if (reachability.isExternal(node)) {
+                graph.addExternalNode(node);
+            } else {
+                graph.addInternalNode(node);
             }
         }
 
-        return graph;
-    }
+        reachability.forEachEdge(reachable, (source, target) -> graph.addEdge((long) source, (long) target));
 
-    private void addNode(long node, MergedDirectedGraph optimizedGraph)
-    {
-        if (this.fullGraph.isExternal(node)) {
-            optimizedGraph.addExternalNode(node);
-        } else {
-            optimizedGraph.addInternalNode(node);
-        }
+        return graph;
     }
 
     /**
@@ -201,10 +500,10 @@ public class MavenGraph
      */
     public List<MavenGraphNode> getOptimizedNodes()
     {
-        List<MavenGraphNode> nodes = new ArrayList<>();
+        List<MavenGraphNode> nodes = new ArrayList<>(this.optimizedGraph.nodes().size());
 
-        for (Long node : this.optimizedGraph.nodes()) {
-            nodes.add(this.graphIdToNode.get(node));
+        for (LongIterator it = this.optimizedGraph.nodes().iterator(); it.hasNext();) {
+            nodes.add(getNode(it.nextLong()));
         }
 
         return nodes;
@@ -214,8 +513,8 @@ public class MavenGraph
     {
         List<MavenGraphNode> nodes = new ArrayList<>();
 
-        for (Long nodeId : this.optimizedGraph.nodes()) {
-            MavenGraphNode node = this.graphIdToNode.get(nodeId);
+        for (LongIterator it = this.optimizedGraph.nodes().iterator(); it.hasNext();) {
+            MavenGraphNode node = getNode(it.nextLong());
 
             if (node.getScope() == scope) {
                 nodes.add(node);
@@ -225,12 +524,55 @@ public class MavenGraph
         return nodes;
     }
 
+    /**
+     * Traverse the optimized graph once and pass each node (and edge, if needed) to all the visitors.
+     * 
+     * @param visitors the visitors to call
+     */
+    public void visitOptimizedGraph(Collection<? extends MavenGraphVisitor> visitors)
+    {
+        List<MavenGraphVisitor> edgeVisitors =
+            visitors.stream().filter(MavenGraphVisitor::isVisitingEdges).collect(Collectors.toList());
+
+        for (LongIterator it = this.optimizedGraph.nodes().iterator(); it.hasNext();) {
+            long nodeId = it.nextLong();
+            MavenGraphNode node = getNode(nodeId);
+
+            if (node != null) {
+                for (MavenGraphVisitor visitor : visitors) {
+                    visitor.onNode(node);
+                }
+
+                if (!edgeVisitors.isEmpty()) {
+                    for (LongIterator successors = this.optimizedGraph.successors(nodeId).iterator(); successors
+                        .hasNext();) {
+                        MavenGraphNode successor = getNode(successors.nextLong());
+
+                        if (successor != null) {
+                            for (MavenGraphVisitor visitor : edgeVisitors) {
+                                visitor.onEdge(node, successor);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        for (MavenGraphVisitor visitor : visitors) {
+            visitor.onEnd();
+        }
+    }
+
     /**
      * @param globalId the global id of the node in the graph
      * @return the node associated to the passed id
      */
     public MavenGraphNode getNode(long globalId)
     {
+        if (this.lazyNodes != null) {
+            return this.lazyNodes.get(globalId);
+        }
+
         return this.graphIdToNode.get(globalId);
     }
 
@@ -247,7 +589,7 @@ public class MavenGraph
      */
     public List<MavenExtendedRevisionJavaCallGraph> getFullDependenciesCGs()
     {
-        return this.fullDependenciesCGs;
+        return Collections.unmodifiableList(this.fullDependenciesCGs);
     }
 
     /**
@@ -255,17 +597,17 @@ public class MavenGraph
      */
     public Set<MavenExtendedRevisionJavaCallGraph> getOptimizedDependenciesRCGs()
     {
-        return this.optimizedDependenciesCGs;
+        return Collections.unmodifiableSet(this.optimizedDependenciesCGs);
     }
 
     public MavenGraphNode getNode(FastenURI fastenURI, boolean optimized)
     {
         if (fastenURI.getProduct() != null) {
-            Map<FastenURI, Long> product = this.localProductURIToGraphId.get(fastenURI.getProduct());
+            Object2LongMap<FastenURI> product = this.localProductURIToGraphId.get(fastenURI.getProduct());
 
-            long graphId = product.get(toLocalFastenURI(fastenURI));
+            long graphId = product != null ? product.getLong(toLocalFastenURI(fastenURI)) : -1;
 
-            if (!optimized || this.optimizedGraph.nodes().contains(graphId)) {
+            if (graphId != -1 && (!optimized || this.optimizedGraph.nodes().contains(graphId))) {
                 return getNode(graphId);
             }
         }
@@ -280,24 +622,37 @@ public class MavenGraph
     }
 
     public void serialize(File folder) throws IOException
+    {
+        serialize(folder, Compression.none);
+    }
+
+    /**
+     * @param folder the folder where to write the graphs
+     * @param compression the compression to apply to the written files
+     * @throws IOException when failing to write the graphs
+     */
+    public void serialize(File folder, Compression compression) throws IOException
     {
         // Make sure the folder exist
         folder.mkdirs();
 
-        File mapFile = new File(folder, "nodes.txt");
+        File mapFile = new File(folder, "nodes.txt" + compression.getExtension());
 
-        try (FileWriter writer = new FileWriter(mapFile)) {
-            for (Map.Entry<Long, MavenGraphNode> entry : this.graphIdToNode.entrySet()) {
-                writer.append(entry.getKey().toString());
+        try (Writer writer = newWriter(mapFile, compression)) {
+            LongIterator ids =
+                this.lazyNodes != null ? this.lazyNodes.getIds().iterator() : this.graphIdToNode.keySet().iterator();
+            while (ids.hasNext()) {
+                long id = ids.nextLong();
+                writer.append(String.valueOf(id));
                 writer.append(':');
-                writer.append(entry.getValue().getFullURI());
+                writer.append(getNode(id).getFullURI());
                 writer.append('\n');
             }
         }
 
-        File fullGraphFile = new File(folder, "fullGraph.txt");
+        File fullGraphFile = new File(folder, "fullGraph.txt" + compression.getExtension());
 
-        try (FileWriter writer = new FileWriter(fullGraphFile)) {
+        try (Writer writer = newWriter(fullGraphFile, compression)) {
             for (LongLongPair edge : this.fullGraph.edgeSet()) {
                 writer.append(String.valueOf(edge.leftLong()));
                 writer.append(" -> ");
@@ -306,9 +661,9 @@ public class MavenGraph
             }
         }
 
-        File optimizedGraphFile = new File(folder, "optimizedGraph.txt");
+        File optimizedGraphFile = new File(folder, "optimizedGraph.txt" + compression.getExtension());
 
-        try (FileWriter writer = new FileWriter(optimizedGraphFile)) {
+        try (Writer writer = newWriter(optimizedGraphFile, compression)) {
             for (LongLongPair edge : this.optimizedGraph.edgeSet()) {
                 writer.append(String.valueOf(edge.leftLong()));
                 writer.append(" -> ");
@@ -317,4 +672,9 @@ public class MavenGraph
             }
         }
     }
+
+    private Writer newWriter(File file, Compression compression) throws IOException
+    {
+        return new BufferedWriter(new OutputStreamWriter(compression.newOutputStream(file), StandardCharsets.UTF_8));
+    }
 }
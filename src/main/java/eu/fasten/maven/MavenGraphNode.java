@@ -26,6 +26,9 @@ import eu.fasten.core.utils.FastenUriUtils;
 
 /**
  * A {@link JavaNode} with a few additional associated information it the context of {@link MavenGraph}.
+ * <p>
+ * Depending on the {@link MavenGraph.NodeMode}, the same node of a graph can be represented by several instances, so
+ * nodes are compared based on their global id.
  * 
  * @version $Id$
  */
@@ -91,4 +94,24 @@ public class MavenGraphNode
                 this.packageCG.get().version, this.localNode.getUri().toString());
         }
     }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof MavenGraphNode)) {
+            return false;
+        }
+
+        return this.globalId == ((MavenGraphNode) obj).globalId;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(this.globalId);
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven;
+
+/**
+ * Receive the nodes and edges of a {@link MavenGraph} during a traversal shared with other visitors.
+ *
+ * @version $Id$
+ * @see MavenGraph#visitOptimizedGraph(java.util.Collection)
+ */
+public interface MavenGraphVisitor
+{
+    /**
+     * @param node a node of the graph
+     */
+    default void onNode(MavenGraphNode node)
+    {
+        // Nothing to do by default
+    }
+
+    /**
+     * @return true if {@link #onEdge(MavenGraphNode, MavenGraphNode)} should be called
+     */
+    default boolean isVisitingEdges()
+    {
+        return false;
+    }
+
+    /**
+     * @param source the node calling the target
+     * @param target the node called by the source
+     */
+    default void onEdge(MavenGraphNode source, MavenGraphNode target)
+    {
+        // Nothing to do by default
+    }
+
+    /**
+     * Called once all the nodes and edges have been visited.
+     */
+    default void onEnd()
+    {
+        // Nothing to do by default
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.analyzer;
+
+import java.util.Collections;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import eu.fasten.maven.MavenGraphVisitor;
+
+/**
+ * Base class for the analyzers working by visiting the optimized graph, so that they can share a single traversal of
+ * the graph with the other visiting analyzers.
+ * 
+ * @version $Id$
+ */
+public abstract class AbstractVisitorRiskAnalyzer extends AbstractRiskAnalyzer
+{
+    @Override
+    public abstract MavenGraphVisitor createVisitor(RiskContext context, RiskReport report)
+        throws MojoExecutionException;
+
+    @Override
+    protected void analyze(RiskContext context, RiskReport report) throws MojoExecutionException
+    {
+        // Traverse the graph alone when executed directly
+        context.getGraph().visitOptimizedGraph(Collections.singletonList(createVisitor(context, report)));
+    }
+}
@@ -21,27 +21,34 @@ import java.util.Set;
 
 import org.apache.commons.collections4.SetUtils;
 
+import eu.fasten.core.data.JavaScope;
 import eu.fasten.maven.MavenGraphNode;
+import eu.fasten.maven.MavenGraphVisitor;
 
 /**
  * Identify binary incompatibilities in the call graph.
  * 
  * @version $Id$
  */
-public class BinaryRiskAnalyzer extends AbstractRiskAnalyzer
+public class BinaryRiskAnalyzer extends AbstractVisitorRiskAnalyzer
 {
     private static final Set<String> PROVIDED_PACKAGES =
         SetUtils.hashSet("java.", "com.sun.", "sun.", "jdk.", "javax.", "jakarta.");
 
     @Override
-    public void analyze(RiskContext context, RiskReport report)
+    public MavenGraphVisitor createVisitor(RiskContext context, RiskReport report)
     {
-        // Report broken calls (unresolved external calls)
-        for (long nodeId : context.getGraph().getOptimizedGraph().externalNodes()) {
-            MavenGraphNode node = context.getGraph().getNode(nodeId);
-
-            report.error(node.getLocalNode().getUri(), "The callable {} cannot be resolved.");
-        }
+        return new MavenGraphVisitor()
+        {
+            @Override
+            public void onNode(MavenGraphNode node)
+            {
+                // Report broken calls (unresolved external calls)
+                if (node.getScope() == JavaScope.externalTypes) {
+                    report.error(node.getLocalNode().getUri(), "The callable {} cannot be resolved.");
+                }
+            }
+        };
     }
 
     @Override
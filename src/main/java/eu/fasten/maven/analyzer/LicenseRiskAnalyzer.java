@@ -32,6 +32,7 @@ import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.maven.model.License;
 import org.apache.maven.project.MavenProject;
@@ -72,32 +73,45 @@ public class LicenseRiskAnalyzer extends AbstractRiskAnalyzer
     @Override
     public void analyze(RiskContext context, RiskReport report)
     {
+        MavenRiskContext mavenContext = (MavenRiskContext) context;
+
         // Get the outbound licenses
-        Set<String> outboundLicenses = getOutboundLicences(((MavenRiskContext) context).getMavenProject());
-
-        // Validate each dependency with the outbound licenses
-        for (String outbound : outboundLicenses) {
-            for (MavenExtendedRevisionJavaCallGraph dependency : context.getGraph().getFullDependenciesCGs()) {
-                if (!report.getAnalyzer().isDependencyIgnored(dependency)) {
-                    try {
-                        validate(outbound, dependency, report);
-                    } catch (Exception e) {
-                        report.error("{}: Failed to validate compatibility of dependency with outbound license [{}]",
-                            dependency.getArtifact().toString(), outbound, e);
+        Set<String> outboundLicenses = getOutboundLicences(mavenContext.getMavenProject());
+
+        // Use the shared client when there is one
+        CloseableHttpClient httpclient =
+            mavenContext.getHttpClient() != null ? mavenContext.getHttpClient() : HttpClients.createSystem();
+
+        try {
+            // Validate each dependency with the outbound licenses
+            for (String outbound : outboundLicenses) {
+                for (MavenExtendedRevisionJavaCallGraph dependency : context.getGraph().getFullDependenciesCGs()) {
+                    if (!report.getAnalyzer().isDependencyIgnored(dependency)) {
+                        try {
+                            validate(outbound, dependency, report, httpclient);
+                        } catch (Exception e) {
+                            report.error(
+                                "{}: Failed to validate compatibility of dependency with outbound license [{}]",
+                                dependency.getArtifact().toString(), outbound, e);
+                        }
                     }
                 }
             }
+        } finally {
+            if (httpclient != mavenContext.getHttpClient()) {
+                httpclient.close(CloseMode.GRACEFUL);
+            }
         }
     }
 
-    private void validate(String outbound, MavenExtendedRevisionJavaCallGraph dependency, RiskReport report)
-        throws IOException, URISyntaxException
+    private void validate(String outbound, MavenExtendedRevisionJavaCallGraph dependency, RiskReport report,
+        CloseableHttpClient httpclient) throws IOException, URISyntaxException
     {
         List<LicenseResult> errors = null;
         List<LicenseResult> warnings = null;
 
         for (License license : dependency.getMavenLicenses()) {
-            LicenseResult result = validate(outbound, license.getName());
+            LicenseResult result = validate(outbound, license.getName(), httpclient);
 
             if (result.getStatus() == LicenseResultType.COMPATIBLE) {
                 // The dependency is compatible if at least one of its licenses is
@@ -126,7 +140,8 @@ public class LicenseRiskAnalyzer extends AbstractRiskAnalyzer
         }
     }
 
-    private LicenseResult validate(String outbound, String inbound) throws IOException, URISyntaxException
+    private LicenseResult validate(String outbound, String inbound, CloseableHttpClient httpclient)
+        throws IOException, URISyntaxException
     {
         LicenseResult result;
 
@@ -140,7 +155,7 @@ public class LicenseRiskAnalyzer extends AbstractRiskAnalyzer
         }
 
         // Ask the LCV service
-        result = validateOnline(outbound, inbound);
+        result = validateOnline(outbound, inbound, httpclient);
 
         // Update the cache
         this.cache.computeIfAbsent(outbound, k -> new HashMap<>()).put(inbound, result);
@@ -153,7 +168,8 @@ public class LicenseRiskAnalyzer extends AbstractRiskAnalyzer
         return project.getLicenses().stream().map(License::getName).collect(Collectors.toSet());
     }
 
-    private LicenseResult validateOnline(String outbound, String inbound) throws IOException, URISyntaxException
+    private LicenseResult validateOnline(String outbound, String inbound, CloseableHttpClient httpclient)
+        throws IOException, URISyntaxException
     {
         URIBuilder builder = new URIBuilder(LCVAPIURL);
         builder.addParameter(LCVAPI_INBOUND, String.join(";", inbound));
@@ -161,22 +177,37 @@ public class LicenseRiskAnalyzer extends AbstractRiskAnalyzer
 
         HttpGet httpGet = new HttpGet(builder.build());
 
-        try (CloseableHttpClient httpclient = HttpClients.createSystem()) {
-            try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-                if (response.getCode() == 200) {
-                    JSONArray json = new JSONArray(new JSONTokener(response.getEntity().getContent()));
-                    return new LicenseResult((JSONObject) json.get(0));
-                } else if (response.getCode() == 404) {
-                    throw new IOException("License validation service not available (404)");
-                } else {
-                    throw new IOException("Unexpected code when response (" + response.getCode() + ")");
-                }
+        try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
+            if (response.getCode() == 200) {
+                JSONArray json = new JSONArray(new JSONTokener(response.getEntity().getContent()));
+                return new LicenseResult((JSONObject) json.get(0));
+            } else if (response.getCode() == 404) {
+                throw new IOException("License validation service not available (404)");
+            } else {
+                throw new IOException("Unexpected code when response (" + response.getCode() + ")");
             }
         }
     }
 
+    /**
+     * Same as {@link #get(Collection, Collection, CloseableHttpClient)} with a client created for this request only.
+     */
     public static List<LicenseResult> get(Collection<String> inbound, Collection<String> outbound)
         throws URISyntaxException, IOException
+    {
+        try (CloseableHttpClient httpclient = HttpClients.createSystem()) {
+            return get(inbound, outbound, httpclient);
+        }
+    }
+
+    /**
+     * @param inbound the licenses of the dependencies
+     * @param outbound the licenses of the project
+     * @param httpclient the HTTP client to use, not closed by this method
+     * @return the compatibility of each license
+     */
+    public static List<LicenseResult> get(Collection<String> inbound, Collection<String> outbound,
+        CloseableHttpClient httpclient) throws URISyntaxException, IOException
     {
         URIBuilder builder = new URIBuilder(LCVAPIURL);
         builder.addParameter(LCVAPI_INBOUND, String.join(";", inbound));
@@ -184,20 +215,18 @@ public class LicenseRiskAnalyzer extends AbstractRiskAnalyzer
 
         HttpGet httpGet = new HttpGet(builder.build());
 
-        try (CloseableHttpClient httpclient = HttpClients.createSystem()) {
-            try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
-                if (response.getCode() == 200) {
-                    JSONArray json = new JSONArray(new JSONTokener(response.getEntity().getContent()));
-                    List<LicenseResult> results = new ArrayList<>(json.length());
-                    for (Object obj : json) {
-                        results.add(new LicenseResult((JSONObject) obj));
-                    }
-                    return results;
-                } else if (response.getCode() == 404) {
-                    throw new IOException("License validation service not available (404)");
-                } else {
-                    throw new IOException("Unexpected code when response (" + response.getCode() + ")");
+        try (CloseableHttpResponse response = httpclient.execute(httpGet)) {
+            if (response.getCode() == 200) {
+                JSONArray json = new JSONArray(new JSONTokener(response.getEntity().getContent()));
+                List<LicenseResult> results = new ArrayList<>(json.length());
+                for (Object obj : json) {
+                    results.add(new LicenseResult((JSONObject) obj));
                 }
+                return results;
+            } else if (response.getCode() == 404) {
+                throw new IOException("License validation service not available (404)");
+            } else {
+                throw new IOException("Unexpected code when response (" + response.getCode() + ")");
             }
         }
     }
@@ -17,6 +17,7 @@
  */
 package eu.fasten.maven.analyzer;
 
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
 
@@ -33,12 +34,33 @@ public class MavenRiskContext extends RiskContext
 
     private final MavenProject mavenProject;
 
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * @param graph the graph to analyze
+     * @param mavenSession the Maven session
+     * @param project the Maven project
+     */
     public MavenRiskContext(MavenGraph graph, MavenSession mavenSession, MavenProject project)
+    {
+        this(graph, mavenSession, project, null);
+    }
+
+    /**
+     * @param graph the graph to analyze
+     * @param mavenSession the Maven session
+     * @param project the Maven project
+     * @param httpClient the HTTP client shared by all the requests of the execution, or null if the analyzers should
+     *            create their own
+     */
+    public MavenRiskContext(MavenGraph graph, MavenSession mavenSession, MavenProject project,
+        CloseableHttpClient httpClient)
     {
         super(graph);
 
         this.mavenSession = mavenSession;
         this.mavenProject = project;
+        this.httpClient = httpClient;
     }
 
     /**
@@ -56,4 +78,13 @@ public class MavenRiskContext extends RiskContext
     {
         return this.mavenProject;
     }
+
+    /**
+     * @return the HTTP client shared by all the requests of the execution, or null if the analyzers should create
+     *         their own
+     */
+    public CloseableHttpClient getHttpClient()
+    {
+        return this.httpClient;
+    }
 }
@@ -26,18 +26,17 @@ import java.util.Set;
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.jgrapht.traverse.DepthFirstIterator;
 
 import eu.fasten.maven.MavenGraphNode;
+import eu.fasten.maven.MavenGraphVisitor;
 import eu.fasten.maven.analyzer.quality.QualityMetricAnalyzer;
-import it.unimi.dsi.fastutil.longs.LongLongPair;
 
 /**
  * Compare quality metric in the dependency with a configured threshold.
  * 
  * @version $Id$
  */
-public class QualityRiskAnalyzer extends AbstractRiskAnalyzer
+public class QualityRiskAnalyzer extends AbstractVisitorRiskAnalyzer
 {
     private static final String QUALITY = "quality";
 
@@ -52,27 +51,25 @@ public class QualityRiskAnalyzer extends AbstractRiskAnalyzer
     }
 
     @Override
-    public void analyze(RiskContext context, RiskReport report) throws MojoExecutionException
+    public MavenGraphVisitor createVisitor(RiskContext context, RiskReport report) throws MojoExecutionException
     {
         // Get configured metrics analyzers
         List<QualityMetricAnalyzer> metricAnalyzers = getAnalyzers();
 
-        DepthFirstIterator<Long, LongLongPair> iterator =
-            new DepthFirstIterator<>(context.getGraph().getOptimizedGraph());
+        return new MavenGraphVisitor()
+        {
+            @Override
+            public void onNode(MavenGraphNode node)
+            {
+                Map<String, Object> quality = (Map<String, Object>) node.getLocalNode().getMetadata().get(QUALITY);
 
-        while (iterator.hasNext()) {
-            long edge = iterator.next();
+                if (quality != null) {
+                    Map<String, Object> metrics = (Map<String, Object>) quality.get(QUALITY_METRICS);
 
-            MavenGraphNode node = context.getGraph().getNode(edge);
-
-            Map<String, Object> quality = (Map<String, Object>) node.getLocalNode().getMetadata().get(QUALITY);
-
-            if (quality != null) {
-                Map<String, Object> metrics = (Map<String, Object>) quality.get(QUALITY_METRICS);
-
-                metricAnalyzers.forEach(a -> a.analyze(context, node, metrics, report));
+                    metricAnalyzers.forEach(a -> a.analyze(context, node, metrics, report));
+                }
             }
-        }
+        };
     }
 
     private List<QualityMetricAnalyzer> getAnalyzers() throws MojoExecutionException
@@ -23,6 +23,7 @@ import java.util.Set;
 import org.apache.maven.plugin.MojoExecutionException;
 
 import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+import eu.fasten.maven.MavenGraphVisitor;
 
 /**
  * An extension point to process the call graph and report high and low risks found in it.
@@ -62,6 +63,22 @@ public interface RiskAnalyzer
      */
     RiskReport analyze(RiskContext context) throws MojoExecutionException;
 
+    /**
+     * Allow the analyzer to share a single traversal of the optimized graph with other analyzers instead of being
+     * executed with {@link #analyze(RiskContext)}.
+     * 
+     * @param context information about the project and its dependencies like the stitched call graphs
+     * @param report the report where to store the errors and warnings found while visiting the graph
+     * @return the visitor to call for each node of the optimized graph, or null if the analyzer does not work by
+     *         visiting the graph
+     * @throws MojoExecutionException when failing to create the visitor
+     * @see AbstractVisitorRiskAnalyzer
+     */
+    default MavenGraphVisitor createVisitor(RiskContext context, RiskReport report) throws MojoExecutionException
+    {
+        return null;
+    }
+
     boolean isCallableIgnored(String signature);
 
     boolean isDependencyIgnored(MavenExtendedRevisionJavaCallGraph dependency);
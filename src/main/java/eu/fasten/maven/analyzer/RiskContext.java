@@ -20,6 +20,8 @@ package eu.fasten.maven.analyzer;
 import eu.fasten.maven.MavenGraph;
 
 /**
+ * The information shared by all the analyzers. The analyzers are executed at the same time and should only read it.
+ *
  * @version $Id$
  */
 public class RiskContext
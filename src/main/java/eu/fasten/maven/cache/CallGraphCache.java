@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import eu.fasten.analyzer.javacgopal.data.CallPreservationStrategy;
+import eu.fasten.analyzer.javacgopal.data.OPALCallGraphConstructor;
+
+/**
+ * A persistent cache of call graphs shared by all the builds using the same local repository.
+ * <p>
+ * Entries are addressed by the SHA-256 of the analyzed file so that an unchanged artifact is never analyzed twice,
+ * whatever the project or the build which requires it. Call graphs generated locally are also identified by the
+ * configuration and the version of the generator.
+ * 
+ * @version $Id$
+ */
+public class CallGraphCache
+{
+    /**
+     * A task writing a cache entry.
+     */
+    @FunctionalInterface
+    public interface EntryWriter
+    {
+        /**
+         * @param file the file to write
+         * @throws IOException when failing to write the file
+         */
+        void write(File file) throws IOException;
+    }
+
+    private static final String JAVACG_OPAL_POM_PROPERTIES =
+        "/META-INF/maven/eu.fasten.analyzer/javacg-opal/pom.properties";
+
+    private static final String SERVER_ENTRY = "fasten";
+
+    private final File directory;
+
+    private final String localEntry;
+
+    /**
+     * @param directory the directory where to store the cache entries
+     * @param algorithm the algorithm used to generate the call graphs locally
+     * @param strategy the strategy used to generate the call graphs locally
+     */
+    public CallGraphCache(File directory, String algorithm, CallPreservationStrategy strategy)
+    {
+        this.directory = directory;
+        this.localEntry = "opal-" + getGeneratorVersion() + '-' + algorithm + '-' + strategy;
+    }
+
+    /**
+     * @return the version of the OPAL based call graph generator
+     */
+    public static String getGeneratorVersion()
+    {
+        try (InputStream stream = OPALCallGraphConstructor.class.getResourceAsStream(JAVACG_OPAL_POM_PROPERTIES)) {
+            if (stream != null) {
+                Properties properties = new Properties();
+                properties.load(stream);
+
+                return properties.getProperty("version", "unknown");
+            }
+        } catch (IOException e) {
+            // Fallback on the package version
+        }
+
+        String version = OPALCallGraphConstructor.class.getPackage().getImplementationVersion();
+
+        return version != null ? version : "unknown";
+    }
+
+    /**
+     * @param file the file to hash
+     * @return the hexadecimal SHA-256 of the file content
+     * @throws IOException when failing to read the file
+     */
+    public static String sha256(File file) throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Failed to get a SHA-256 digest", e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the directory where the cache entries are stored
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    private File getFolder(String hash)
+    {
+        return new File(this.directory, hash.substring(0, 2) + '/' + hash);
+    }
+
+    /**
+     * @param hash the SHA-256 of the analyzed file
+     * @param extension the extension of the serialized call graph
+     * @return the entry of the call graph downloaded from the FASTEN server
+     */
+    public File getServerEntry(String hash, String extension)
+    {
+        return new File(getFolder(hash), SERVER_ENTRY + extension);
+    }
+
+    /**
+     * @param hash the SHA-256 of the analyzed file
+     * @param extension the extension of the serialized call graph
+     * @return the entry of the call graph generated locally
+     */
+    public File getLocalEntry(String hash, String extension)
+    {
+        return new File(getFolder(hash), this.localEntry + extension);
+    }
+
+    /**
+     * Atomically create or replace a cache entry so that concurrent builds never see a partial entry.
+     * 
+     * @param entry the entry to write
+     * @param writer the task writing the content of the entry
+     * @throws IOException when failing to write the entry
+     */
+    public void store(File entry, EntryWriter writer) throws IOException
+    {
+        entry.getParentFile().mkdirs();
+
+        File tmp = File.createTempFile(entry.getName(), ".tmp", entry.getParentFile());
+        try {
+            writer.write(tmp);
+
+            Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+}
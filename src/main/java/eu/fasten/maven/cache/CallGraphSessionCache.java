@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+import eu.fasten.maven.serialization.BinaryCallGraphSerializer;
+
+/**
+ * Share the call graphs between all the modules built in the same Maven session.
+ * <p>
+ * Modules enrich the call graphs they use (metadata, licenses, etc.) and might be built in parallel, so the cache
+ * stores the immutable binary serialization of each call graph and each module gets its own copy.
+ * <p>
+ * A call graph is produced only once: the first module asking for it reserves it, and the other modules asking for it
+ * in the meantime wait for it to be produced.
+ * <p>
+ * The least recently used call graphs are evicted when the memory used by the cached call graphs goes over the
+ * configured limit.
+ * 
+ * @version $Id$
+ */
+public class CallGraphSessionCache
+{
+    private static final class SharedCallGraph
+    {
+        final byte[] content;
+
+        final boolean remote;
+
+        SharedCallGraph(byte[] content, boolean remote)
+        {
+            this.content = content;
+            this.remote = remote;
+        }
+
+        MavenExtendedRevisionJavaCallGraph copy(Artifact artifact)
+        {
+            try {
+                return BinaryCallGraphSerializer.read(artifact, new ByteArrayInputStream(this.content), this.remote);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+
+    private static final class Entry
+    {
+        final CompletableFuture<SharedCallGraph> content = new CompletableFuture<>();
+
+        long weight;
+    }
+
+    private static final class FileKey
+    {
+        final String path;
+
+        final long length;
+
+        final long lastModified;
+
+        FileKey(File file)
+        {
+            this.path = file.getAbsolutePath();
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj instanceof FileKey) {
+                FileKey other = (FileKey) obj;
+
+                return this.path.equals(other.path) && this.length == other.length
+                    && this.lastModified == other.lastModified;
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.path.hashCode();
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<FileKey, String> hashes = new HashMap<>();
+
+    private long maxWeight;
+
+    private long weight;
+
+    /**
+     * @param maxWeight the maximum memory (in bytes) used by the cached call graphs
+     */
+    public CallGraphSessionCache(long maxWeight)
+    {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Get the cache associated with the passed Maven session, or create it.
+     * 
+     * @param session the Maven session
+     * @param maxWeight the maximum memory (in bytes) used by the cached call graphs
+     * @return the cache shared by all the modules of the session, or null if none can be associated with the session
+     */
+    public static CallGraphSessionCache get(MavenSession session, long maxWeight)
+    {
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        if (repositorySession == null) {
+            return null;
+        }
+
+        // Use the class as key to not share the cache between different versions of the plugin
+        SessionData data = repositorySession.getData();
+        CallGraphSessionCache cache;
+        do {
+            cache = (CallGraphSessionCache) data.get(CallGraphSessionCache.class);
+            if (cache != null) {
+                cache.setMaxWeight(maxWeight);
+
+                return cache;
+            }
+        } while (!data.set(CallGraphSessionCache.class, null, new CallGraphSessionCache(maxWeight)));
+
+        return (CallGraphSessionCache) data.get(CallGraphSessionCache.class);
+    }
+
+    private synchronized void setMaxWeight(long maxWeight)
+    {
+        // Several modules might have a different configuration, keep the highest limit
+        this.maxWeight = Math.max(this.maxWeight, maxWeight);
+    }
+
+    /**
+     * @param file the file to hash
+     * @return the hexadecimal SHA-256 of the file content, computed only once for the session
+     * @throws IOException when failing to read the file
+     */
+    public String sha256(File file) throws IOException
+    {
+        FileKey key = new FileKey(file);
+
+        synchronized (this.hashes) {
+            String hash = this.hashes.get(key);
+            if (hash != null) {
+                return hash;
+            }
+        }
+
+        String hash = CallGraphCache.sha256(file);
+
+        synchronized (this.hashes) {
+            this.hashes.put(key, hash);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Reserve the production of a call graph, unless another module already produced it or is producing it.
+     * <p>
+     * When the reservation succeeds, the caller must either {@link #put(String, MavenExtendedRevisionJavaCallGraph)}
+     * the call graph or {@link #release(String)} the reservation.
+     * 
+     * @param key the identifier of the call graph
+     * @param artifact the artifact of the call graph in the current module
+     * @param executor the executor in charge of copying the call graph
+     * @return null if the caller is in charge of producing the call graph, or the future copy of the call graph owned
+     *         by the caller (completed with null if the producer failed)
+     */
+    public CompletableFuture<MavenExtendedRevisionJavaCallGraph> reserve(String key, Artifact artifact,
+        Executor executor)
+    {
+        CompletableFuture<SharedCallGraph> content;
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+            if (entry == null) {
+                this.entries.put(key, new Entry());
+
+                return null;
+            }
+
+            content = entry.content;
+        }
+
+        return content.thenApplyAsync(shared -> shared != null ? shared.copy(artifact) : null, executor);
+    }
+
+    /**
+     * Share a call graph, which must not be enriched yet, with the other modules.
+     * 
+     * @param key the identifier of the call graph
+     * @param callGraph the call graph to cache
+     * @throws IOException when failing to serialize the call graph
+     */
+    public void put(String key, MavenExtendedRevisionJavaCallGraph callGraph) throws IOException
+    {
+        byte[] content;
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            BinaryCallGraphSerializer.serialize(callGraph, stream);
+            content = stream.toByteArray();
+        } catch (IOException e) {
+            release(key);
+
+            throw e;
+        }
+
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+
+            if (content.length > this.maxWeight) {
+                // Too big to be cached, let the waiting modules produce it themselves
+                if (entry != null && !entry.content.isDone()) {
+                    this.entries.remove(key);
+                    entry.content.complete(null);
+                }
+
+                return;
+            }
+
+            if (entry == null || entry.content.isDone()) {
+                Entry previous = entry;
+                entry = new Entry();
+                this.entries.put(key, entry);
+                if (previous != null) {
+                    this.weight -= previous.weight;
+                }
+            }
+
+            entry.weight = content.length;
+            this.weight += entry.weight;
+            entry.content.complete(new SharedCallGraph(content, callGraph.isRemote()));
+
+            // Evict the least recently used call graphs (the ones being produced don't use memory yet)
+            for (Iterator<Entry> it = this.entries.values().iterator(); this.weight > this.maxWeight && it.hasNext();) {
+                Entry evicted = it.next();
+                if (evicted.content.isDone()) {
+                    this.weight -= evicted.weight;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the reservation of a call graph which could not be produced, the waiting modules produce it themselves.
+     * 
+     * @param key the identifier of the call graph
+     */
+    public synchronized void release(String key)
+    {
+        Entry entry = this.entries.get(key);
+
+        if (entry != null && !entry.content.isDone()) {
+            this.entries.remove(key);
+            entry.content.complete(null);
+        }
+    }
+}
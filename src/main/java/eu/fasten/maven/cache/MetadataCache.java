@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * A persistent cache of the metadata resolved on the FASTEN server, shared by all the builds using the same local
+ * repository.
+ * <p>
+ * Package metadata are addressed by the package coordinates. The callable metadata of a package are stored together,
+ * indexed by full callable URI, in a single file addressed by the package coordinates and the requested attributes so
+ * that they are read with a single file access. Each entry remembers when it was resolved and the validators (ETag, Last-Modified) sent by the
+ * server so that an expired entry can be revalidated instead of downloaded again.
+ *
+ * @version $Id$
+ */
+public class MetadataCache
+{
+    private static final String PACKAGES = "packages";
+
+    private static final String CALLABLES = "callables";
+
+    private static final String PROP_TIME = "time";
+
+    private static final String PROP_ETAG = "etag";
+
+    private static final String PROP_LAST_MODIFIED = "lastModified";
+
+    private static final String PROP_DATA = "data";
+
+    /**
+     * A cached metadata.
+     */
+    public static final class Entry
+    {
+        private final File file;
+
+        private final long time;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final JSONObject data;
+
+        Entry(File file, JSONObject json)
+        {
+            this.file = file;
+            this.time = json.getLong(PROP_TIME);
+            this.etag = json.optString(PROP_ETAG, null);
+            this.lastModified = json.optString(PROP_LAST_MODIFIED, null);
+            this.data = json.getJSONObject(PROP_DATA);
+        }
+
+        /**
+         * @param ttl the time (in milliseconds) during which an entry can be used without asking the server
+         * @return true if the entry can be used without asking the server
+         */
+        public boolean isFresh(long ttl)
+        {
+            return System.currentTimeMillis() - this.time < ttl;
+        }
+
+        /**
+         * @return the ETag sent by the server with the metadata, or null if none was provided
+         */
+        public String getETag()
+        {
+            return this.etag;
+        }
+
+        /**
+         * @return the Last-Modified date sent by the server with the metadata, or null if none was provided
+         */
+        public String getLastModified()
+        {
+            return this.lastModified;
+        }
+
+        /**
+         * @return true if the server provided a way to check if the metadata changed
+         */
+        public boolean isRevalidable()
+        {
+            return this.etag != null || this.lastModified != null;
+        }
+
+        /**
+         * @return the metadata
+         */
+        public JSONObject getData()
+        {
+            return this.data;
+        }
+    }
+
+    private final File directory;
+
+    /**
+     * @param directory the directory where to store the cache entries
+     */
+    public MetadataCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory where the cache entries are stored
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    private static String sha256(String value)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("Failed to get a SHA-256 digest", e);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest(value.getBytes(StandardCharsets.UTF_8))) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return builder.toString();
+    }
+
+    private File getFile(String type, String key)
+    {
+        String hash = sha256(key);
+
+        return new File(this.directory, type + '/' + hash.substring(0, 2) + '/' + hash + ".json");
+    }
+
+    private File getPackageFile(String product, String version)
+    {
+        return getFile(PACKAGES, product + '$' + version);
+    }
+
+    private File getCallablesFile(String product, String version, Collection<String> attributes)
+    {
+        // The order in which the attributes are requested does not matter
+        return getFile(CALLABLES, product + '$' + version + '?' + String.join("&", new TreeSet<>(attributes)));
+    }
+
+    private JSONObject read(File file) throws IOException
+    {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            return new JSONObject(new JSONTokener(stream));
+        } catch (Exception e) {
+            throw new IOException("Failed to read the metadata cache entry [" + file + "]", e);
+        }
+    }
+
+    private Entry get(File file) throws IOException
+    {
+        JSONObject json = read(file);
+
+        try {
+            return json != null ? new Entry(file, json) : null;
+        } catch (Exception e) {
+            throw new IOException("Failed to read the metadata cache entry [" + file + "]", e);
+        }
+    }
+
+    private JSONObject toEntry(JSONObject data, String etag, String lastModified, long time)
+    {
+        JSONObject json = new JSONObject();
+        json.put(PROP_TIME, time);
+        json.putOpt(PROP_ETAG, etag);
+        json.putOpt(PROP_LAST_MODIFIED, lastModified);
+        json.put(PROP_DATA, data);
+
+        return json;
+    }
+
+    private void store(File file, JSONObject data, String etag, String lastModified) throws IOException
+    {
+        write(file, toEntry(data, etag, lastModified, System.currentTimeMillis()));
+    }
+
+    private void write(File file, JSONObject json) throws IOException
+    {
+        // Atomically create or replace the entry so that concurrent builds never see a partial entry
+        file.getParentFile().mkdirs();
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            Files.write(tmp.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * @param product the product of the package
+     * @param version the version of the package
+     * @return the cached metadata of the package, or null if none could be found
+     * @throws IOException when failing to read the entry
+     */
+    public Entry getPackage(String product, String version) throws IOException
+    {
+        return get(getPackageFile(product, version));
+    }
+
+    /**
+     * @param product the product of the package
+     * @param version the version of the package
+     * @param data the metadata of the package
+     * @param etag the ETag sent by the server, or null if none was provided
+     * @param lastModified the Last-Modified date sent by the server, or null if none was provided
+     * @throws IOException when failing to write the entry
+     */
+    public void storePackage(String product, String version, JSONObject data, String etag, String lastModified)
+        throws IOException
+    {
+        store(getPackageFile(product, version), data, etag, lastModified);
+    }
+
+    /**
+     * Indicate that the server confirmed the cached metadata did not change.
+     *
+     * @param entry the entry to mark as fresh
+     * @throws IOException when failing to write the entry
+     */
+    public void revalidate(Entry entry) throws IOException
+    {
+        store(entry.file, entry.data, entry.etag, entry.lastModified);
+    }
+
+    /**
+     * @param product the product of the package
+     * @param version the version of the package
+     * @param attributes the requested metadata
+     * @return the cached metadata of the callables of the package, indexed by full callable URI
+     * @throws IOException when failing to read the entries
+     */
+    public Map<String, Entry> getCallables(String product, String version, Collection<String> attributes)
+        throws IOException
+    {
+        File file = getCallablesFile(product, version, attributes);
+
+        JSONObject json = read(file);
+        if (json == null) {
+            return new HashMap<>();
+        }
+
+        Map<String, Entry> entries = new HashMap<>(json.length() * 4 / 3 + 1);
+        try {
+            for (String uri : json.keySet()) {
+                entries.put(uri, new Entry(file, json.getJSONObject(uri)));
+            }
+        } catch (Exception e) {
+            throw new IOException("Failed to read the metadata cache entry [" + file + "]", e);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Add or replace metadata of callables of a package. When several builds update the same package at the same time,
+     * the last one wins and the callables stored by the others will be requested again.
+     * 
+     * @param product the product of the package
+     * @param version the version of the package
+     * @param attributes the requested metadata
+     * @param data the metadata of each callable (empty when the server does not know the callable), indexed by full
+     *            callable URI
+     * @throws IOException when failing to write the entries
+     */
+    public void storeCallables(String product, String version, Collection<String> attributes,
+        Map<String, JSONObject> data) throws IOException
+    {
+        File file = getCallablesFile(product, version, attributes);
+
+        JSONObject json = read(file);
+        if (json == null) {
+            json = new JSONObject();
+        }
+
+        long time = System.currentTimeMillis();
+        for (Map.Entry<String, JSONObject> entry : data.entrySet()) {
+            json.put(entry.getKey(), toEntry(entry.getValue(), null, null, time));
+        }
+
+        write(file, json);
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.http;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequests;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.entity.NoopEntityConsumer;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+
+import eu.fasten.maven.serialization.Compression;
+
+/**
+ * Download files asynchronously, with a limited number of requests in flight.
+ * <p>
+ * The body of a successful response is parsed while it's received, and written to a file at the same time.
+ * 
+ * @version $Id$
+ */
+public class AsyncFileDownloader implements Closeable
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parse the content of a downloaded file.
+     * 
+     * @param <T> the type of the parsed content
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface ContentParser<T>
+    {
+        /**
+         * @param stream the content to parse
+         * @return the parsed content
+         * @throws IOException when failing to parse the content
+         */
+        T parse(InputStream stream) throws IOException;
+    }
+
+    /**
+     * The downloaded content could not be parsed or written to the file. Unlike the other errors of a download, it's
+     * not a failure of the server or of the network.
+     * 
+     * @version $Id$
+     */
+    public static final class ContentException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        ContentException(String message, Throwable cause)
+        {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * The result of a download.
+     * 
+     * @param <T> the type of the parsed content
+     * @version $Id$
+     */
+    public static final class Download<T>
+    {
+        /**
+         * The code of a request which was not sent because the circuit breaker was open.
+         */
+        public static final int SKIPPED = -1;
+
+        private final int code;
+
+        private final T content;
+
+        private final String retryAfter;
+
+        private final long time;
+
+        Download(int code, T content, String retryAfter)
+        {
+            this(code, content, retryAfter, 0);
+        }
+
+        private Download(int code, T content, String retryAfter, long time)
+        {
+            this.code = code;
+            this.content = content;
+            this.retryAfter = retryAfter;
+            this.time = time;
+        }
+
+        Download<T> withTime(long time)
+        {
+            return new Download<>(this.code, this.content, this.retryAfter, time);
+        }
+
+        /**
+         * @return the time (in nanoseconds) spent sending the request(s) and receiving the response(s), without the
+         *         time spent waiting for a slot or before a retry
+         */
+        public long getTime()
+        {
+            return this.time;
+        }
+
+        /**
+         * @return true if the request was not sent because the circuit breaker was open
+         */
+        public boolean isSkipped()
+        {
+            return this.code == SKIPPED;
+        }
+
+        /**
+         * @return the status code of the response
+         */
+        public int getCode()
+        {
+            return this.code;
+        }
+
+        /**
+         * @return the parsed content of the response, null if the request was not successful
+         */
+        public T getContent()
+        {
+            return this.content;
+        }
+    }
+
+    private final class DownloadResponseConsumer<T> implements AsyncResponseConsumer<Download<T>>
+    {
+        private final File file;
+
+        private final Compression compression;
+
+        private final ContentParser<T> parser;
+
+        private AsyncEntityConsumer<?> entityConsumer;
+
+        DownloadResponseConsumer(File file, Compression compression, ContentParser<T> parser)
+        {
+            this.file = file;
+            this.compression = compression;
+            this.parser = parser;
+        }
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+            FutureCallback<Download<T>> resultCallback) throws HttpException, IOException
+        {
+            int code = response.getCode();
+            Header retryAfterHeader = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+            String retryAfter = retryAfterHeader != null ? retryAfterHeader.getValue() : null;
+
+            if (entityDetails == null) {
+                resultCallback.completed(new Download<>(code, null, retryAfter));
+            } else if (code == 200) {
+                AsyncEntityConsumer<T> consumer = new AbstractClassicEntityConsumer<T>(BUFFER_SIZE, parsers)
+                {
+                    @Override
+                    protected T consumeData(ContentType contentType, InputStream inputStream) throws IOException
+                    {
+                        return parse(inputStream);
+                    }
+                };
+                this.entityConsumer = consumer;
+                consumer.streamStart(entityDetails, new FutureCallback<T>()
+                {
+                    @Override
+                    public void completed(T result)
+                    {
+                        resultCallback.completed(new Download<>(code, result, retryAfter));
+                    }
+
+                    @Override
+                    public void failed(Exception ex)
+                    {
+                        resultCallback.failed(ex);
+                    }
+
+                    @Override
+                    public void cancelled()
+                    {
+                        resultCallback.cancelled();
+                    }
+                });
+            } else {
+                // Ignore the content of unsuccessful responses
+                AsyncEntityConsumer<Void> consumer = new NoopEntityConsumer();
+                this.entityConsumer = consumer;
+                consumer.streamStart(entityDetails, new FutureCallback<Void>()
+                {
+                    @Override
+                    public void completed(Void result)
+                    {
+                        resultCallback.completed(new Download<>(code, null, retryAfter));
+                    }
+
+                    @Override
+                    public void failed(Exception ex)
+                    {
+                        resultCallback.failed(ex);
+                    }
+
+                    @Override
+                    public void cancelled()
+                    {
+                        resultCallback.cancelled();
+                    }
+                });
+            }
+        }
+
+        private T parse(InputStream inputStream) throws IOException
+        {
+            // Make sure the parent folder exist
+            this.file.getParentFile().mkdirs();
+
+            // Write the content to the file while parsing it
+            try (OutputStream fileStream = new ProxyOutputStream(this.compression.newOutputStream(this.file))
+            {
+                @Override
+                protected void handleIOException(IOException e) throws IOException
+                {
+                    throw new ContentException("Failed to write the downloaded content to [" + file + "]", e);
+                }
+            }; InputStream stream = new TeeInputStream(inputStream, fileStream)) {
+                T content = this.parser.parse(stream);
+
+                // Make sure the whole content ends up in the file
+                IOUtils.consume(stream);
+
+                return content;
+            } catch (RuntimeException e) {
+                // The parser might wrap the errors of the stream it reads (network or file errors)
+                IOException streamError = ExceptionUtils.throwableOfType(e, IOException.class);
+                if (streamError != null) {
+                    throw streamError;
+                }
+
+                throw new ContentException("Failed to parse the downloaded content", e);
+            }
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context)
+        {
+            // Not needed
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException
+        {
+            this.entityConsumer.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) throws IOException
+        {
+            this.entityConsumer.consume(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException
+        {
+            this.entityConsumer.streamEnd(trailers);
+        }
+
+        @Override
+        public void failed(Exception cause)
+        {
+            if (this.entityConsumer != null) {
+                this.entityConsumer.failed(cause);
+            }
+        }
+
+        @Override
+        public void releaseResources()
+        {
+            if (this.entityConsumer != null) {
+                this.entityConsumer.releaseResources();
+            }
+        }
+    }
+
+    private final CloseableHttpAsyncClient client;
+
+    private final int maxRequests;
+
+    private final ExecutorService parsers;
+
+    private final RetryPolicy retryPolicy;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor();
+
+    // Each request returns true if it was sent, false if it was completed without using its slot
+    private final Deque<BooleanSupplier> pending = new ArrayDeque<>();
+
+    private int running;
+
+    /**
+     * @param maxRequests the maximum number of requests in flight
+     * @param requestConfig the configuration of the requests (timeouts, etc.)
+     * @param retryPolicy decide which failed requests are sent again
+     */
+    public AsyncFileDownloader(int maxRequests, RequestConfig requestConfig, RetryPolicy retryPolicy)
+    {
+        this(maxRequests, requestConfig, retryPolicy, null);
+    }
+
+    /**
+     * @param maxRequests the maximum number of requests in flight
+     * @param requestConfig the configuration of the requests (timeouts, etc.)
+     * @param retryPolicy decide which failed requests are sent again
+     * @param circuitBreaker checked before sending each request, the requests waiting for a slot are skipped once it's
+     *            open, null to always send the requests
+     */
+    public AsyncFileDownloader(int maxRequests, RequestConfig requestConfig, RetryPolicy retryPolicy,
+        CircuitBreaker circuitBreaker)
+    {
+        this.maxRequests = Math.max(1, maxRequests);
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+
+        // Each request in flight needs its own thread to parse the content while it's received
+        this.parsers = Executors.newFixedThreadPool(this.maxRequests);
+
+        this.client = HttpAsyncClients.custom().useSystemProperties()
+            // Multiplex the requests when the server supports HTTP/2
+            .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+            .setDefaultRequestConfig(requestConfig)
+            .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create().useSystemProperties()
+                .setMaxConnTotal(this.maxRequests).setMaxConnPerRoute(this.maxRequests).build())
+            .build();
+
+        this.client.start();
+    }
+
+    /**
+     * Send a GET request and, if the request is successful (200), parse the body of the response while writing it in
+     * the passed file. The request is sent again, after a delay, when the retry policy asks for it. If the circuit
+     * breaker is open when the request is about to be sent, the download is completed with the
+     * {@link Download#SKIPPED} code. The download fails with a {@link ContentException} when the content can't be
+     * parsed or written.
+     * 
+     * @param <T> the type of the parsed content
+     * @param uri the URI to download
+     * @param file the file where to write the downloaded content
+     * @param compression the compression to apply to the written file
+     * @param parser the parser of the downloaded content
+     * @return the future result of the download
+     */
+    public <T> CompletableFuture<Download<T>> download(URI uri, File file, Compression compression,
+        ContentParser<T> parser)
+    {
+        CompletableFuture<Download<T>> future = new CompletableFuture<>();
+
+        download(uri, file, compression, parser, future, 1, 0);
+
+        return future;
+    }
+
+    private <T> void download(URI uri, File file, Compression compression, ContentParser<T> parser,
+        CompletableFuture<Download<T>> future, int execCount, long previousTime)
+    {
+        long[] dispatched = new long[1];
+
+        FutureCallback<Download<T>> callback = new FutureCallback<Download<T>>()
+        {
+            @Override
+            public void completed(Download<T> result)
+            {
+                long time = previousTime + System.nanoTime() - dispatched[0];
+
+                next();
+
+                if (retryPolicy.retryRequest(result.getCode(), execCount)) {
+                    // Don't keep a slot while waiting
+                    retries.schedule(() -> download(uri, file, compression, parser, future, execCount + 1, time),
+                        retryPolicy.getRetryDelay(execCount, result.retryAfter), TimeUnit.MILLISECONDS);
+                } else {
+                    future.complete(result.withTime(time));
+                }
+            }
+
+            @Override
+            public void failed(Exception ex)
+            {
+                next();
+
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled()
+            {
+                next();
+
+                future.cancel(false);
+            }
+        };
+
+        schedule(() -> {
+            // The breaker might have opened while the request was waiting for a slot
+            if (this.circuitBreaker != null && !this.circuitBreaker.allowRequest()) {
+                future.complete(new Download<>(Download.SKIPPED, null, null, previousTime));
+
+                return false;
+            }
+
+            dispatched[0] = System.nanoTime();
+
+            try {
+                this.client.execute(SimpleRequestProducer.create(SimpleHttpRequests.get(uri)),
+                    new DownloadResponseConsumer<>(file, compression, parser), callback);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+
+                return false;
+            }
+
+            return true;
+        });
+    }
+
+    private void schedule(BooleanSupplier request)
+    {
+        synchronized (this.pending) {
+            if (this.running >= this.maxRequests) {
+                this.pending.add(request);
+
+                return;
+            }
+
+            ++this.running;
+        }
+
+        if (!request.getAsBoolean()) {
+            // The request did not use the slot
+            next();
+        }
+    }
+
+    private void next()
+    {
+        BooleanSupplier request;
+        do {
+            synchronized (this.pending) {
+                request = this.pending.poll();
+
+                if (request == null) {
+                    --this.running;
+
+                    return;
+                }
+            }
+            // Give the slot to the next request until one is actually sent
+        } while (!request.getAsBoolean());
+    }
+
+    @Override
+    public void close()
+    {
+        this.client.close(CloseMode.GRACEFUL);
+        this.parsers.shutdownNow();
+        this.retries.shutdownNow();
+    }
+}
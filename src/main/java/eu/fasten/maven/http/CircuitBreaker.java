@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.http;
+
+/**
+ * Stop sending requests to a server after too many consecutive failures.
+ * <p>
+ * Once open, the breaker stays open until the end of the execution: a server which is down is unlikely to come back
+ * during a build, and each new attempt would wait for its timeout.
+ *
+ * @version $Id$
+ */
+public class CircuitBreaker
+{
+    private final int threshold;
+
+    private int consecutiveFailures;
+
+    private int failures;
+
+    private int skipped;
+
+    private boolean open;
+
+    /**
+     * @param threshold the number of consecutive failures after which no more requests are sent, lower than 1 to
+     *            never stop sending requests
+     */
+    public CircuitBreaker(int threshold)
+    {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return true if the request can be sent, false if it should be skipped
+     */
+    public synchronized boolean allowRequest()
+    {
+        if (this.open) {
+            ++this.skipped;
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Indicate that the server answered a request.
+     */
+    public synchronized void success()
+    {
+        this.consecutiveFailures = 0;
+    }
+
+    /**
+     * Indicate that the server failed to answer a request.
+     *
+     * @return true if this failure opened the breaker
+     */
+    public synchronized boolean failure()
+    {
+        ++this.failures;
+
+        if (!this.open && this.threshold > 0 && ++this.consecutiveFailures >= this.threshold) {
+            this.open = true;
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the requests are not sent anymore
+     */
+    public synchronized boolean isOpen()
+    {
+        return this.open;
+    }
+
+    /**
+     * @return the total number of failed requests
+     */
+    public synchronized int getFailures()
+    {
+        return this.failures;
+    }
+
+    /**
+     * @return the number of requests which were not sent because the breaker was open
+     */
+    public synchronized int getSkipped()
+    {
+        return this.skipped;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.http;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+
+/**
+ * Retry the requests rejected because the server is overloaded (429) or failing (5xx), waiting exponentially longer
+ * between each attempt.
+ * <p>
+ * Most network errors (connection refused, unknown host, timeouts) are not retried: they usually mean the server is
+ * unreachable and waiting would only slow down the build. An idempotent request is sent once more when the connection
+ * was closed without a response, which happens when a kept alive connection was closed by the server.
+ *
+ * @version $Id$
+ */
+public class RetryPolicy implements HttpRequestRetryStrategy
+{
+    private static final long MAX_INTERVAL = 60000;
+
+    private final int maxRetries;
+
+    private final long interval;
+
+    private final AtomicInteger retries = new AtomicInteger();
+
+    /**
+     * @param maxRetries the maximum number of times a request is sent again
+     * @param interval the time (in milliseconds) to wait before the first retry, doubled for each following retry
+     */
+    public RetryPolicy(int maxRetries, long interval)
+    {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.interval = Math.max(0, interval);
+    }
+
+    /**
+     * @param code the status code of the response
+     * @return true if the response indicates a temporary failure of the server
+     */
+    public static boolean isServerFailure(int code)
+    {
+        return code == 429 || code >= 500;
+    }
+
+    /**
+     * @param code the status code of the response
+     * @param execCount the number of times the request was already sent
+     * @return true if the request should be sent again
+     */
+    public boolean retryRequest(int code, int execCount)
+    {
+        if (isServerFailure(code) && execCount <= this.maxRetries) {
+            this.retries.incrementAndGet();
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @param execCount the number of times the request was already sent
+     * @return the time (in milliseconds) to wait before sending the request again
+     */
+    public long getRetryDelay(int execCount)
+    {
+        return Math.min(MAX_INTERVAL, this.interval << Math.min(execCount - 1, 20));
+    }
+
+    /**
+     * @return the number of requests which were sent again
+     */
+    public int getRetries()
+    {
+        return this.retries.get();
+    }
+
+    /**
+     * @param method the method of the request
+     * @param exception the error which happened while sending the request
+     * @param execCount the number of times the request was already sent
+     * @return true if the request should be sent again
+     */
+    public boolean retryRequest(String method, IOException exception, int execCount)
+    {
+        // Only the stale connections of the pool are worth a (single and immediate) retry
+        if (execCount <= 1 && Method.isIdempotent(method)
+            && (exception instanceof NoHttpResponseException || exception instanceof ConnectionClosedException)) {
+            this.retries.incrementAndGet();
+
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean retryRequest(HttpRequest request, IOException exception, int execCount, HttpContext context)
+    {
+        return retryRequest(request.getMethod(), exception, execCount);
+    }
+
+    @Override
+    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context)
+    {
+        return retryRequest(response.getCode(), execCount);
+    }
+
+    @Override
+    public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context)
+    {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+
+        return TimeValue.ofMilliseconds(getRetryDelay(execCount, header != null ? header.getValue() : null));
+    }
+
+    /**
+     * @param execCount the number of times the request was already sent
+     * @param retryAfter the value of the Retry-After header of the response, null if there is none
+     * @return the time (in milliseconds) to wait before sending the request again, the longest of the exponential
+     *         backoff and the delay asked by the server (as long as it's reasonable)
+     */
+    public long getRetryDelay(int execCount, String retryAfter)
+    {
+        long delay = getRetryDelay(execCount);
+
+        if (retryAfter != null) {
+            try {
+                delay = Math.min(MAX_INTERVAL, Math.max(delay, Long.parseLong(retryAfter.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                // Not a number of seconds, ignore it
+            }
+        }
+
+        return delay;
+    }
+}
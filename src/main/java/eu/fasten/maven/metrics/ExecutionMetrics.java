@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Collect the time and resources spent in each phase of an execution.
+ * <p>
+ * The CPU time and the allocated memory are measured on the thread which started the measure, so they don't include
+ * the work done asynchronously by other threads. Measures of the same phase are accumulated, and the same phase can be
+ * measured from several threads at the same time.
+ * <p>
+ * When disabled, the measures don't read the clocks and are not recorded.
+ *
+ * @version $Id$
+ */
+public class ExecutionMetrics
+{
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final class Phase
+    {
+        final String name;
+
+        long calls;
+
+        long wallTime;
+
+        long cpuTime;
+
+        long allocatedBytes;
+
+        long items;
+
+        Phase(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    /**
+     * A measure in progress, to be closed when the phase ends.
+     *
+     * @version $Id$
+     */
+    public final class Measure implements AutoCloseable
+    {
+        private final String phase;
+
+        private final long wallStart;
+
+        private final long cpuStart;
+
+        private final long allocatedStart;
+
+        private long items;
+
+        private boolean closed;
+
+        Measure()
+        {
+            // Disabled measure
+            this.phase = null;
+            this.wallStart = 0;
+            this.cpuStart = -1;
+            this.allocatedStart = -1;
+            this.closed = true;
+        }
+
+        Measure(String phase)
+        {
+            this.phase = phase;
+            this.wallStart = System.nanoTime();
+            this.cpuStart = getCurrentThreadCpuTime();
+            this.allocatedStart = getCurrentThreadAllocatedBytes();
+        }
+
+        /**
+         * @param count the number of items (nodes, requests, etc.) processed during this measure
+         * @return this measure
+         */
+        public Measure items(long count)
+        {
+            if (!this.closed) {
+                this.items += count;
+            }
+
+            return this;
+        }
+
+        @Override
+        public void close()
+        {
+            if (!this.closed) {
+                this.closed = true;
+
+                long cpu = this.cpuStart >= 0 ? getCurrentThreadCpuTime() - this.cpuStart : 0;
+                long allocated =
+                    this.allocatedStart >= 0 ? getCurrentThreadAllocatedBytes() - this.allocatedStart : 0;
+
+                add(this.phase, System.nanoTime() - this.wallStart, cpu, allocated, this.items);
+            }
+        }
+    }
+
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    private final boolean enabled;
+
+    private final Measure disabledMeasure = new Measure();
+
+    /**
+     * Create enabled metrics.
+     */
+    public ExecutionMetrics()
+    {
+        this(true);
+    }
+
+    /**
+     * @param enabled false to ignore all the measures
+     */
+    public ExecutionMetrics(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    private static long getCurrentThreadCpuTime()
+    {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long getCurrentThreadAllocatedBytes()
+    {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) THREADS;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param phase the name of the phase
+     * @return the measure, to be closed when the phase ends
+     */
+    public Measure start(String phase)
+    {
+        return this.enabled ? new Measure(phase) : this.disabledMeasure;
+    }
+
+    /**
+     * Record a phase which was not executed on a single thread (for example an asynchronous download), for which only
+     * the wall time is known.
+     *
+     * @param phase the name of the phase
+     * @param wallTime the time (in nanoseconds) spent in the phase
+     * @param items the number of items processed during the phase
+     */
+    public void addWallTime(String phase, long wallTime, long items)
+    {
+        if (this.enabled) {
+            add(phase, wallTime, 0, 0, items);
+        }
+    }
+
+    private synchronized void add(String name, long wallTime, long cpuTime, long allocatedBytes, long items)
+    {
+        Phase phase = this.phases.computeIfAbsent(name, Phase::new);
+
+        ++phase.calls;
+        phase.wallTime += wallTime;
+        phase.cpuTime += cpuTime;
+        phase.allocatedBytes += allocatedBytes;
+        phase.items += items;
+    }
+
+    private synchronized List<Phase> getPhases()
+    {
+        List<Phase> copy = new ArrayList<>(this.phases.size());
+        for (Phase phase : this.phases.values()) {
+            Phase phaseCopy = new Phase(phase.name);
+            phaseCopy.calls = phase.calls;
+            phaseCopy.wallTime = phase.wallTime;
+            phaseCopy.cpuTime = phase.cpuTime;
+            phaseCopy.allocatedBytes = phase.allocatedBytes;
+            phaseCopy.items = phase.items;
+            copy.add(phaseCopy);
+        }
+
+        return copy;
+    }
+
+    /**
+     * @return the metrics in JSON format
+     */
+    public JSONObject toJSON()
+    {
+        JSONArray json = new JSONArray();
+        for (Phase phase : getPhases()) {
+            JSONObject jsonPhase = new JSONObject();
+            jsonPhase.put("name", phase.name);
+            jsonPhase.put("calls", phase.calls);
+            jsonPhase.put("wallTimeMs", phase.wallTime / 1000000);
+            jsonPhase.put("cpuTimeMs", phase.cpuTime / 1000000);
+            jsonPhase.put("allocatedBytes", phase.allocatedBytes);
+            jsonPhase.put("items", phase.items);
+            json.put(jsonPhase);
+        }
+
+        return new JSONObject().put("phases", json);
+    }
+
+    /**
+     * @param file the file where to write the metrics in JSON format
+     * @throws IOException when failing to write the file
+     */
+    public void write(File file) throws IOException
+    {
+        FileUtils.write(file, toJSON().toString(2), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param log the log where to write the metrics as a table
+     */
+    public void log(Log log)
+    {
+        String format = "%-40s %8s %12s %12s %14s %12s";
+
+        log.info(String.format(format, "Phase", "Calls", "Wall (ms)", "CPU (ms)", "Allocated (MB)", "Items"));
+        for (Phase phase : getPhases()) {
+            log.info(String.format(format, phase.name, phase.calls, phase.wallTime / 1000000,
+                phase.cpuTime / 1000000, phase.allocatedBytes / (1024 * 1024), phase.items));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.metrics;
+
+import eu.fasten.maven.MavenGraphNode;
+import eu.fasten.maven.MavenGraphVisitor;
+
+/**
+ * Measure the time spent in a visitor which shares its traversal with other visitors.
+ * <p>
+ * Only the wall time is recorded, since the traversal thread also executes the other visitors.
+ *
+ * @version $Id$
+ */
+public class MeasuredGraphVisitor implements MavenGraphVisitor
+{
+    private final MavenGraphVisitor visitor;
+
+    private final ExecutionMetrics metrics;
+
+    private final String phase;
+
+    private long time;
+
+    private long nodes;
+
+    /**
+     * @param visitor the visitor to measure
+     * @param metrics where to record the measure
+     * @param phase the name of the phase under which the visitor time is recorded
+     */
+    public MeasuredGraphVisitor(MavenGraphVisitor visitor, ExecutionMetrics metrics, String phase)
+    {
+        this.visitor = visitor;
+        this.metrics = metrics;
+        this.phase = phase;
+    }
+
+    @Override
+    public void onNode(MavenGraphNode node)
+    {
+        long start = System.nanoTime();
+        this.visitor.onNode(node);
+        this.time += System.nanoTime() - start;
+
+        ++this.nodes;
+    }
+
+    @Override
+    public boolean isVisitingEdges()
+    {
+        return this.visitor.isVisitingEdges();
+    }
+
+    @Override
+    public void onEdge(MavenGraphNode source, MavenGraphNode target)
+    {
+        long start = System.nanoTime();
+        this.visitor.onEdge(source, target);
+        this.time += System.nanoTime() - start;
+    }
+
+    @Override
+    public void onEnd()
+    {
+        long start = System.nanoTime();
+        this.visitor.onEnd();
+        this.time += System.nanoTime() - start;
+
+        this.metrics.addWallTime(this.phase, this.time, this.nodes);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.serialization;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A buffered stream which pass the written bytes to a compressing stream executed in a background thread.
+ * 
+ * @version $Id$
+ */
+class BackgroundCompressionOutputStream extends BufferedOutputStream
+{
+    @FunctionalInterface
+    interface StreamOpener
+    {
+        OutputStream open() throws IOException;
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fasten-compression");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    private final Future<Void> task;
+
+    private boolean closed;
+
+    private IOException reported;
+
+    BackgroundCompressionOutputStream(StreamOpener opener, int bufferSize) throws IOException
+    {
+        super(new PipedOutputStream(), bufferSize);
+
+        PipedInputStream input = new PipedInputStream((PipedOutputStream) this.out, bufferSize);
+
+        this.task = EXECUTOR.submit(() -> {
+            try (InputStream pipe = input; OutputStream output = opener.open()) {
+                IOUtils.copy(pipe, output, bufferSize);
+            }
+
+            return null;
+        });
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException
+    {
+        try {
+            super.write(b);
+        } catch (IOException e) {
+            throw getFailure(e);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException
+    {
+        try {
+            super.write(b, off, len);
+        } catch (IOException e) {
+            throw getFailure(e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException
+    {
+        try {
+            super.flush();
+        } catch (IOException e) {
+            throw getFailure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        IOException failure = null;
+        try {
+            super.close();
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        // Wait for the compression to be finished
+        try {
+            waitForTask();
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        // Don't throw again the failure already reported by a write
+        if (failure != null && failure != this.reported) {
+            throw failure;
+        }
+    }
+
+    private IOException getFailure(IOException e)
+    {
+        // The pipe is closed when the compression failed, the real cause is more interesting
+        if (this.task.isDone()) {
+            try {
+                waitForTask();
+            } catch (IOException cause) {
+                this.reported = cause;
+
+                return cause;
+            }
+        }
+
+        return e;
+    }
+
+    private void waitForTask() throws IOException
+    {
+        try {
+            this.task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while waiting for the compression", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException("Failed to compress the content", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.serialization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.JavaGraph;
+import eu.fasten.core.data.JavaNode;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.core.data.JavaType;
+import eu.fasten.core.data.PartialJavaCallGraph;
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+/**
+ * A compact binary representation of a call graph.
+ * <p>
+ * The call graph is written directly from its class hierarchy and graph. All the strings (URIs, metadata keys and
+ * values, etc.) are stored once in a shared table and referenced by index, integers are stored as variable length
+ * integers, method ids are delta encoded and call sites are stored column by column with delta encoded ids.
+ * 
+ * @version $Id$
+ */
+public final class BinaryCallGraphSerializer
+{
+    /**
+     * The extension of the files using this format.
+     */
+    public static final String EXTENSION = ".fcg";
+
+    private static final byte[] MAGIC = {'F', 'C', 'G'};
+
+    private static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int TAG_NULL = 0;
+
+    private static final int TAG_FALSE = 1;
+
+    private static final int TAG_TRUE = 2;
+
+    private static final int TAG_INTEGER = 3;
+
+    private static final int TAG_DOUBLE = 4;
+
+    private static final int TAG_STRING = 5;
+
+    private static final int TAG_MAP = 6;
+
+    private static final int TAG_LIST = 7;
+
+    private static final int TAG_LONG = 8;
+
+    private static final int TAG_FLOAT = 9;
+
+    private static final int TAG_BIG_INTEGER = 10;
+
+    private static final int TAG_BIG_DECIMAL = 11;
+
+    private BinaryCallGraphSerializer()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param callGraph the call graph to serialize
+     * @param stream the stream where to write the serialized call graph
+     * @throws IOException when failing to write the call graph
+     */
+    public static void serialize(PartialJavaCallGraph callGraph, OutputStream stream) throws IOException
+    {
+        // Gather the strings
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        collectStrings(callGraph, strings);
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+
+        // Header
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+
+        // Strings table
+        writeVarInt(strings.size(), output);
+        for (String string : strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length, output);
+            output.write(bytes);
+        }
+
+        // Call graph
+        writeString(callGraph.forge, strings, output);
+        writeString(callGraph.product, strings, output);
+        writeString(callGraph.version, strings, output);
+        writeString(callGraph.getCgGenerator(), strings, output);
+        writeVarLong(zigzag(callGraph.timestamp), output);
+
+        writeClassHierarchy(callGraph.getClassHierarchy(), strings, output);
+        writeGraph(callGraph.getGraph(), strings, output);
+
+        output.flush();
+    }
+
+    /**
+     * @param artifact the Maven artifact
+     * @param stream the serialized call graph
+     * @param remote true if the call graph might contain remote metadata
+     * @return the call graph
+     * @throws IOException when failing to read the call graph
+     */
+    public static MavenExtendedRevisionJavaCallGraph read(Artifact artifact, InputStream stream, boolean remote)
+        throws IOException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+
+        // Header
+        byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Not a binary call graph");
+            }
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary call graph version [" + version + "]");
+        }
+
+        // Strings table
+        int size = readVarInt(input);
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            byte[] bytes = new byte[readVarInt(input)];
+            input.readFully(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        // Call graph
+        String forge = readString(input, strings);
+        String product = readString(input, strings);
+        String productVersion = readString(input, strings);
+        String generator = readString(input, strings);
+        long timestamp = unzigzag(readVarLong(input));
+
+        EnumMap<JavaScope, Map<String, JavaType>> classHierarchy = readClassHierarchy(input, strings);
+        JavaGraph graph = readGraph(input, strings);
+
+        return new MavenExtendedRevisionJavaCallGraph(artifact, forge, product, productVersion, timestamp, generator,
+            classHierarchy, graph, remote);
+    }
+
+    private static void collectStrings(PartialJavaCallGraph callGraph, Map<String, Integer> strings)
+    {
+        collectString(callGraph.forge, strings);
+        collectString(callGraph.product, strings);
+        collectString(callGraph.version, strings);
+        collectString(callGraph.getCgGenerator(), strings);
+
+        for (Map.Entry<JavaScope, Map<String, JavaType>> scope : callGraph.getClassHierarchy().entrySet()) {
+            collectString(scope.getKey().name(), strings);
+
+            for (Map.Entry<String, JavaType> type : scope.getValue().entrySet()) {
+                collectString(type.getKey(), strings);
+                collectString(type.getValue().getSourceFileName(), strings);
+                collectString(type.getValue().getAccess(), strings);
+                type.getValue().getSuperClasses().forEach(uri -> collectString(uri.toString(), strings));
+                type.getValue().getSuperInterfaces().forEach(uri -> collectString(uri.toString(), strings));
+
+                for (JavaNode method : type.getValue().getMethods().values()) {
+                    collectString(method.getUri().toString(), strings);
+                    collectValue(method.getMetadata(), strings);
+                }
+            }
+        }
+
+        for (Map<Object, Object> metadata : callGraph.getGraph().getCallSites().values()) {
+            collectValue(metadata, strings);
+        }
+    }
+
+    private static void collectString(String value, Map<String, Integer> strings)
+    {
+        if (value != null) {
+            strings.putIfAbsent(value, strings.size());
+        }
+    }
+
+    private static void collectValue(Object value, Map<String, Integer> strings)
+    {
+        if (value instanceof String) {
+            collectString((String) value, strings);
+        } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+            collectString(value.toString(), strings);
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                collectValue(entry.getKey(), strings);
+                collectValue(entry.getValue(), strings);
+            }
+        } else if (value instanceof Iterable) {
+            for (Object element : (Iterable<?>) value) {
+                collectValue(element, strings);
+            }
+        } else if (value != null && value != JSONObject.NULL && !(value instanceof Boolean)
+            && !(value instanceof Number)) {
+            collectString(normalize(value), strings);
+        }
+    }
+
+    private static String normalize(Object value)
+    {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+
+        return value.toString();
+    }
+
+    private static void writeClassHierarchy(Map<JavaScope, Map<String, JavaType>> classHierarchy,
+        Map<String, Integer> strings, DataOutputStream output) throws IOException
+    {
+        writeVarInt(classHierarchy.size(), output);
+        for (Map.Entry<JavaScope, Map<String, JavaType>> scope : classHierarchy.entrySet()) {
+            writeString(scope.getKey().name(), strings, output);
+
+            writeVarInt(scope.getValue().size(), output);
+            for (Map.Entry<String, JavaType> entry : scope.getValue().entrySet()) {
+                JavaType type = entry.getValue();
+
+                writeString(entry.getKey(), strings, output);
+                writeString(type.getSourceFileName(), strings, output);
+                writeString(type.getAccess(), strings, output);
+                output.writeBoolean(type.isFinal());
+                writeURIs(type.getSuperClasses(), strings, output);
+                writeURIs(type.getSuperInterfaces(), strings, output);
+
+                // Methods, sorted so that the delta between two ids is small (ids are usually contiguous)
+                List<Map.Entry<Integer, JavaNode>> methods = new ArrayList<>(type.getMethods().entrySet());
+                methods.sort(Map.Entry.comparingByKey());
+                writeVarInt(methods.size(), output);
+                long previous = 0;
+                for (Map.Entry<Integer, JavaNode> method : methods) {
+                    writeVarLong(zigzag(method.getKey() - previous), output);
+                    previous = method.getKey();
+
+                    writeString(method.getValue().getUri().toString(), strings, output);
+                    writeValue(method.getValue().getMetadata(), strings, output);
+                }
+            }
+        }
+    }
+
+    private static void writeURIs(List<FastenURI> uris, Map<String, Integer> strings, DataOutputStream output)
+        throws IOException
+    {
+        writeVarInt(uris.size(), output);
+        for (FastenURI uri : uris) {
+            writeString(uri.toString(), strings, output);
+        }
+    }
+
+    private static void writeGraph(JavaGraph graph, Map<String, Integer> strings, DataOutputStream output)
+        throws IOException
+    {
+        Map<IntIntPair, Map<Object, Object>> callSites = graph.getCallSites();
+        List<Map.Entry<IntIntPair, Map<Object, Object>>> entries = new ArrayList<>(callSites.entrySet());
+
+        // Sort the call sites so that the delta between two sources is small
+        entries.sort(Comparator.comparingInt((Map.Entry<IntIntPair, Map<Object, Object>> entry) -> entry.getKey()
+            .leftInt()).thenComparingInt(entry -> entry.getKey().rightInt()));
+
+        writeVarInt(entries.size(), output);
+
+        // Sources
+        long previous = 0;
+        for (Map.Entry<IntIntPair, Map<Object, Object>> entry : entries) {
+            int source = entry.getKey().leftInt();
+            writeVarLong(zigzag(source - previous), output);
+            previous = source;
+        }
+
+        // Targets (usually close to the source)
+        for (Map.Entry<IntIntPair, Map<Object, Object>> entry : entries) {
+            writeVarLong(zigzag((long) entry.getKey().rightInt() - entry.getKey().leftInt()), output);
+        }
+
+        // Call sites metadata
+        for (Map.Entry<IntIntPair, Map<Object, Object>> entry : entries) {
+            writeValue(entry.getValue(), strings, output);
+        }
+    }
+
+    private static void writeString(String value, Map<String, Integer> strings, DataOutputStream output)
+        throws IOException
+    {
+        // 0 is reserved for null
+        writeVarInt(value != null ? strings.get(value) + 1 : 0, output);
+    }
+
+    private static void writeValue(Object value, Map<String, Integer> strings, DataOutputStream output)
+        throws IOException
+    {
+        if (value == null || value == JSONObject.NULL) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            output.writeByte(((Boolean) value) ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            output.writeByte(TAG_INTEGER);
+            writeVarLong(zigzag(((Number) value).longValue()), output);
+        } else if (value instanceof Long) {
+            output.writeByte(TAG_LONG);
+            writeVarLong(zigzag((Long) value), output);
+        } else if (value instanceof Double) {
+            output.writeByte(TAG_DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            output.writeByte(TAG_FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof BigInteger) {
+            output.writeByte(TAG_BIG_INTEGER);
+            writeVarInt(strings.get(value.toString()), output);
+        } else if (value instanceof BigDecimal) {
+            output.writeByte(TAG_BIG_DECIMAL);
+            writeVarInt(strings.get(value.toString()), output);
+        } else if (value instanceof String) {
+            output.writeByte(TAG_STRING);
+            writeVarInt(strings.get(value), output);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(TAG_MAP);
+            writeVarInt(map.size(), output);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey(), strings, output);
+                writeValue(entry.getValue(), strings, output);
+            }
+        } else if (value instanceof Iterable) {
+            List<Object> list = new ArrayList<>();
+            ((Iterable<?>) value).forEach(list::add);
+            output.writeByte(TAG_LIST);
+            writeVarInt(list.size(), output);
+            for (Object element : list) {
+                writeValue(element, strings, output);
+            }
+        } else {
+            writeValue(normalize(value), strings, output);
+        }
+    }
+
+    private static EnumMap<JavaScope, Map<String, JavaType>> readClassHierarchy(DataInputStream input,
+        List<String> strings) throws IOException
+    {
+        EnumMap<JavaScope, Map<String, JavaType>> classHierarchy = new EnumMap<>(JavaScope.class);
+
+        int scopes = readVarInt(input);
+        for (int i = 0; i < scopes; ++i) {
+            JavaScope scope = JavaScope.valueOf(readString(input, strings));
+
+            int size = readVarInt(input);
+            Map<String, JavaType> types = new HashMap<>(size * 4 / 3 + 1);
+            for (int j = 0; j < size; ++j) {
+                String uri = readString(input, strings);
+
+                // FASTEN only exposes the json constructor of a type, only the json of one type exists at a time
+                JSONObject type = new JSONObject();
+                type.put("sourceFile", readString(input, strings));
+                type.put("access", readString(input, strings));
+                type.put("final", input.readBoolean());
+                type.put("superClasses", readURIs(input, strings));
+                type.put("superInterfaces", readURIs(input, strings));
+
+                JSONObject methods = new JSONObject();
+                int methodCount = readVarInt(input);
+                long previous = 0;
+                for (int k = 0; k < methodCount; ++k) {
+                    previous += unzigzag(readVarLong(input));
+
+                    JSONObject method = new JSONObject();
+                    method.put("uri", readString(input, strings));
+                    Object metadata = readValue(input, strings);
+                    method.put("metadata", metadata != null ? metadata : new JSONObject());
+                    methods.put(String.valueOf(previous), method);
+                }
+                type.put("methods", methods);
+
+                types.put(uri, new JavaType(uri, type));
+            }
+
+            classHierarchy.put(scope, types);
+        }
+
+        return classHierarchy;
+    }
+
+    private static JSONArray readURIs(DataInputStream input, List<String> strings) throws IOException
+    {
+        int size = readVarInt(input);
+        JSONArray uris = new JSONArray();
+        for (int i = 0; i < size; ++i) {
+            uris.put(readString(input, strings));
+        }
+
+        return uris;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JavaGraph readGraph(DataInputStream input, List<String> strings) throws IOException
+    {
+        int size = readVarInt(input);
+
+        int[] sources = new int[size];
+        long previous = 0;
+        for (int i = 0; i < size; ++i) {
+            previous += unzigzag(readVarLong(input));
+            sources[i] = (int) previous;
+        }
+
+        int[] targets = new int[size];
+        for (int i = 0; i < size; ++i) {
+            targets[i] = (int) (sources[i] + unzigzag(readVarLong(input)));
+        }
+
+        Map<IntIntPair, Map<Object, Object>> callSites = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; ++i) {
+            callSites.put(IntIntPair.of(sources[i], targets[i]), (Map<Object, Object>) readValue(input, strings));
+        }
+
+        return new JavaGraph(callSites);
+    }
+
+    private static String readString(DataInputStream input, List<String> strings) throws IOException
+    {
+        int index = readVarInt(input);
+
+        return index > 0 ? strings.get(index - 1) : null;
+    }
+
+    private static Object readValue(DataInputStream input, List<String> strings) throws IOException
+    {
+        int tag = input.readUnsignedByte();
+
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_INTEGER:
+                return (int) unzigzag(readVarLong(input));
+            case TAG_LONG:
+                return unzigzag(readVarLong(input));
+            case TAG_DOUBLE:
+                return input.readDouble();
+            case TAG_FLOAT:
+                return input.readFloat();
+            case TAG_BIG_INTEGER:
+                return new BigInteger(strings.get(readVarInt(input)));
+            case TAG_BIG_DECIMAL:
+                return new BigDecimal(strings.get(readVarInt(input)));
+            case TAG_STRING:
+                return strings.get(readVarInt(input));
+            case TAG_MAP:
+                int mapSize = readVarInt(input);
+                Map<Object, Object> map = new HashMap<>(mapSize * 4 / 3 + 1);
+                for (int i = 0; i < mapSize; ++i) {
+                    Object key = readValue(input, strings);
+                    map.put(key, readValue(input, strings));
+                }
+                return map;
+            case TAG_LIST:
+                int listSize = readVarInt(input);
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; ++i) {
+                    list.add(readValue(input, strings));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown binary call graph tag [" + tag + "]");
+        }
+    }
+
+    private static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(int value, DataOutputStream output) throws IOException
+    {
+        writeVarLong(value & 0xFFFFFFFFL, output);
+    }
+
+    private static void writeVarLong(long value, DataOutputStream output) throws IOException
+    {
+        long current = value;
+        while ((current & ~0x7FL) != 0) {
+            output.writeByte((int) ((current & 0x7F) | 0x80));
+            current >>>= 7;
+        }
+        output.writeByte((int) current);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException
+    {
+        return (int) readVarLong(input);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed variable length integer");
+    }
+}
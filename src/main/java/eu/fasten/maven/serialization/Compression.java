@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.serialization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The supported compressions of the files produced by the plugin.
+ * 
+ * @version $Id$
+ */
+public enum Compression
+{
+    // No compression
+    none(""),
+
+    // Standard gzip compression
+    gzip(".gz"),
+
+    // Zstandard compression, only available when zstd-jni is part of the plugin classpath
+    zstd(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String ZSTD_OUTPUT = "com.github.luben.zstd.ZstdOutputStream";
+
+    private static final String ZSTD_INPUT = "com.github.luben.zstd.ZstdInputStream";
+
+    private final String extension;
+
+    Compression(String extension)
+    {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the extension to add to the name of the compressed files
+     */
+    public String getExtension()
+    {
+        return this.extension;
+    }
+
+    /**
+     * @return true if the compression can be used in the current environment
+     */
+    public boolean isAvailable()
+    {
+        if (this == zstd) {
+            try {
+                Class.forName(ZSTD_OUTPUT, false, Compression.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param file the file
+     * @return the compression of the file, deduced from its extension
+     */
+    public static Compression fromFile(File file)
+    {
+        for (Compression compression : values()) {
+            if (compression != none && file.getName().endsWith(compression.extension)) {
+                return compression;
+            }
+        }
+
+        return none;
+    }
+
+    /**
+     * @param file the file
+     * @return the name of the file without the compression extension
+     */
+    public static String getUncompressedName(File file)
+    {
+        String name = file.getName();
+
+        return name.substring(0, name.length() - fromFile(file).extension.length());
+    }
+
+    /**
+     * Open a buffered stream to the passed file. The compression, if any, is executed in a background thread.
+     * 
+     * @param file the file to write
+     * @return the stream to write to the file
+     * @throws IOException when failing to open the file
+     */
+    public OutputStream newOutputStream(File file) throws IOException
+    {
+        if (this == none) {
+            return new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE);
+        }
+
+        return new BackgroundCompressionOutputStream(() -> compress(Files.newOutputStream(file.toPath())),
+            BUFFER_SIZE);
+    }
+
+    /**
+     * Open a buffered and decompressed stream to the passed file, according to its extension.
+     * 
+     * @param file the file to read
+     * @return the stream to read the file
+     * @throws IOException when failing to open the file
+     */
+    public static InputStream newInputStream(File file) throws IOException
+    {
+        InputStream stream = new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE);
+
+        try {
+            switch (fromFile(file)) {
+                case gzip:
+                    return new GZIPInputStream(stream, BUFFER_SIZE);
+                case zstd:
+                    return new BufferedInputStream((InputStream) create(ZSTD_INPUT, InputStream.class, stream),
+                        BUFFER_SIZE);
+                default:
+                    return stream;
+            }
+        } catch (IOException e) {
+            stream.close();
+
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a file, compressing or decompressing it according to the extensions of the source and the target.
+     * 
+     * @param source the file to copy
+     * @param target the file to write
+     * @throws IOException when failing to copy the file
+     */
+    public static void copy(File source, File target) throws IOException
+    {
+        Compression targetCompression = fromFile(target);
+
+        if (fromFile(source) == targetCompression) {
+            FileUtils.copyFile(source, target);
+        } else {
+            try (InputStream input = newInputStream(source);
+                OutputStream output = targetCompression.newOutputStream(target)) {
+                IOUtils.copy(input, output, BUFFER_SIZE);
+            }
+        }
+    }
+
+    private OutputStream compress(OutputStream stream) throws IOException
+    {
+        try {
+            if (this == gzip) {
+                return new GZIPOutputStream(stream, BUFFER_SIZE);
+            }
+
+            return (OutputStream) create(ZSTD_OUTPUT, OutputStream.class, stream);
+        } catch (IOException e) {
+            stream.close();
+
+            throw e;
+        }
+    }
+
+    private static Object create(String className, Class<?> streamClass, Object stream) throws IOException
+    {
+        try {
+            Constructor<?> constructor =
+                Class.forName(className, true, Compression.class.getClassLoader()).getConstructor(streamClass);
+
+            return constructor.newInstance(stream);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException("Failed to create a " + className, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("The zstd compression is not available", e);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.serialization;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import eu.fasten.core.data.Constants;
+import eu.fasten.core.data.JavaGraph;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.core.data.JavaType;
+import eu.fasten.core.data.PartialJavaCallGraph;
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+/**
+ * Read the json representation of a call graph without building the json tree of the whole document.
+ * <p>
+ * The document is read token by token and each type and call site is converted to the FASTEN model as soon as it's
+ * parsed, so that only the json tree of a single type (or of a small batch of call sites) exists at a given time. The
+ * conversion itself is delegated to FASTEN to produce exactly the same model as {@link PartialJavaCallGraph}'s json
+ * constructor.
+ *
+ * @version $Id$
+ */
+public final class JSONCallGraphReader
+{
+    private static final int CALL_SITES_BATCH = 1024;
+
+    @FunctionalInterface
+    private interface KeyReader
+    {
+        void read(String key);
+    }
+
+    @FunctionalInterface
+    private interface ElementReader
+    {
+        void read();
+    }
+
+    private static final class Header
+    {
+        private String forge = Constants.mvnForge;
+
+        private String product;
+
+        private String version;
+
+        private String generator = Constants.opalGenerator;
+
+        private long timestamp = -1;
+    }
+
+    private JSONCallGraphReader()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param artifact the Maven artifact
+     * @param stream the json content to parse
+     * @param remote true if the call graph might contain remote metadata
+     * @return the call graph
+     * @throws JSONException when failing to parse the json
+     */
+    public static MavenExtendedRevisionJavaCallGraph read(Artifact artifact, InputStream stream, boolean remote)
+    {
+        return read(artifact, new InputStreamReader(stream, StandardCharsets.UTF_8), remote);
+    }
+
+    /**
+     * @param artifact the Maven artifact
+     * @param reader the json content to parse
+     * @param remote true if the call graph might contain remote metadata
+     * @return the call graph
+     * @throws JSONException when failing to parse the json
+     */
+    public static MavenExtendedRevisionJavaCallGraph read(Artifact artifact, Reader reader, boolean remote)
+    {
+        JSONTokener tokener = new JSONTokener(reader);
+
+        Header header = new Header();
+        EnumMap<JavaScope, Map<String, JavaType>> classHierarchy = new EnumMap<>(JavaScope.class);
+        Map<IntIntPair, Map<Object, Object>> callSites = new HashMap<>();
+
+        readObject(tokener, key -> {
+            switch (key) {
+                case "forge":
+                    header.forge = nextString(tokener);
+                    break;
+                case "product":
+                    header.product = nextString(tokener);
+                    break;
+                case "version":
+                    header.version = nextString(tokener);
+                    break;
+                case "generator":
+                    header.generator = nextString(tokener);
+                    break;
+                case "timestamp":
+                    header.timestamp = ((Number) tokener.nextValue()).longValue();
+                    break;
+                case "cha":
+                    readClassHierarchy(tokener, classHierarchy);
+                    break;
+                case "call-sites":
+                    readCallSites(tokener, callSites);
+                    break;
+                default:
+                    // Skip the values which are not part of the model (nodes count, etc.)
+                    tokener.nextValue();
+                    break;
+            }
+        });
+
+        if (header.product == null || header.version == null) {
+            throw new JSONException("The call graph does not have a product or a version");
+        }
+
+        return new MavenExtendedRevisionJavaCallGraph(artifact, header.forge, header.product, header.version,
+            header.timestamp, header.generator, classHierarchy, new JavaGraph(callSites), remote);
+    }
+
+    private static void readClassHierarchy(JSONTokener tokener,
+        EnumMap<JavaScope, Map<String, JavaType>> classHierarchy)
+    {
+        readObject(tokener, scopeKey -> {
+            Map<String, JavaType> types = new HashMap<>();
+            classHierarchy.put(JavaScope.valueOf(scopeKey), types);
+
+            // Only the json tree of the current type is in memory
+            readObject(tokener, typeKey -> types.put(typeKey, new JavaType(typeKey, nextObject(tokener))));
+        });
+    }
+
+    private static void readCallSites(JSONTokener tokener, Map<IntIntPair, Map<Object, Object>> callSites)
+    {
+        JSONArray batch = new JSONArray();
+
+        readArray(tokener, () -> {
+            Object callSite = tokener.nextValue();
+            if (!(callSite instanceof JSONArray)) {
+                throw tokener.syntaxError("A call site must be an array");
+            }
+            batch.put(callSite);
+
+            if (batch.length() == CALL_SITES_BATCH) {
+                flushCallSites(batch, callSites);
+            }
+        });
+
+        flushCallSites(batch, callSites);
+    }
+
+    private static void flushCallSites(JSONArray batch, Map<IntIntPair, Map<Object, Object>> callSites)
+    {
+        if (!batch.isEmpty()) {
+            callSites.putAll(new JavaGraph(batch).getCallSites());
+            batch.clear();
+        }
+    }
+
+    private static String nextString(JSONTokener tokener)
+    {
+        Object value = tokener.nextValue();
+        if (!(value instanceof String)) {
+            throw tokener.syntaxError("Expected a string");
+        }
+
+        return (String) value;
+    }
+
+    private static JSONObject nextObject(JSONTokener tokener)
+    {
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw tokener.syntaxError("Expected an object");
+        }
+
+        return (JSONObject) value;
+    }
+
+    private static void readObject(JSONTokener tokener, KeyReader reader)
+    {
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+
+        char c = tokener.nextClean();
+        if (c == '}') {
+            return;
+        }
+        tokener.back();
+
+        do {
+            c = tokener.nextClean();
+            if (c != '"' && c != '\'') {
+                throw tokener.syntaxError("A JSONObject key must be a string");
+            }
+            String key = tokener.nextString(c);
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+
+            reader.read(key);
+
+            c = tokener.nextClean();
+        } while (c == ',');
+
+        if (c != '}') {
+            throw tokener.syntaxError("Expected a ',' or '}'");
+        }
+    }
+
+    private static void readArray(JSONTokener tokener, ElementReader reader)
+    {
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("A JSONArray text must start with '['");
+        }
+
+        char c = tokener.nextClean();
+        if (c == ']') {
+            return;
+        }
+        tokener.back();
+
+        do {
+            reader.read();
+
+            c = tokener.nextClean();
+        } while (c == ',');
+
+        if (c != ']') {
+            throw tokener.syntaxError("Expected a ',' or ']'");
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.fasten.maven.serialization;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.JSONUtils;
+import eu.fasten.core.data.JavaGraph;
+import eu.fasten.core.data.JavaNode;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.core.data.JavaType;
+import eu.fasten.core.data.PartialJavaCallGraph;
+import it.unimi.dsi.fastutil.ints.IntIntPair;
+
+/**
+ * Write the json representation of a call graph without building it in memory first.
+ * <p>
+ * Produce the same document, byte for byte, as {@link JSONUtils#toJSONString(PartialJavaCallGraph)}, but each type and
+ * call site is written one after the other so that the memory used does not depend on the size of the call graph.
+ * 
+ * @version $Id$
+ */
+public final class JSONCallGraphWriter
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private JSONCallGraphWriter()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param callGraph the call graph to serialize
+     * @param file the file where to write the json
+     * @throws IOException when failing to write the file
+     */
+    public static void write(PartialJavaCallGraph callGraph, File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+
+            write(callGraph, writer);
+
+            writer.flush();
+        }
+    }
+
+    /**
+     * @param callGraph the call graph to serialize
+     * @param writer the writer where to write the json
+     * @throws IOException when failing to write the json
+     */
+    public static void write(PartialJavaCallGraph callGraph, Writer writer) throws IOException
+    {
+        writer.write('{');
+
+        writeKeyValue("product", callGraph.product, writer);
+        writeKeyValue("nodes", callGraph.getNodeCount(), writer);
+        writeKeyValue("forge", callGraph.forge, writer);
+        writeKeyValue("generator", callGraph.getCgGenerator(), writer);
+        writeKeyValue("version", callGraph.version, writer);
+
+        writeClassHierarchy(callGraph.getClassHierarchy(), writer);
+        writer.write(',');
+        writeGraph(callGraph.getGraph(), writer);
+
+        if (callGraph.timestamp >= 0) {
+            writer.write(',');
+            writeKey("timestamp", writer);
+            writer.write(String.valueOf(callGraph.timestamp));
+        }
+
+        writer.write('}');
+    }
+
+    private static void writeKey(String key, Writer writer) throws IOException
+    {
+        writer.write(JSONObject.quote(key));
+        writer.write(':');
+    }
+
+    private static void writeKeyValue(String key, String value, Writer writer) throws IOException
+    {
+        writeKey(key, writer);
+        writer.write(JSONObject.quote(value));
+        writer.write(',');
+    }
+
+    private static void writeKeyValue(String key, long value, Writer writer) throws IOException
+    {
+        writeKey(key, writer);
+        writer.write(String.valueOf(value));
+        writer.write(',');
+    }
+
+    private static void writeClassHierarchy(Map<JavaScope, Map<String, JavaType>> classHierarchy, Writer writer)
+        throws IOException
+    {
+        writeKey("cha", writer);
+        writer.write('{');
+
+        for (Iterator<Map.Entry<JavaScope, Map<String, JavaType>>> scopes =
+            classHierarchy.entrySet().iterator(); scopes.hasNext();) {
+            Map.Entry<JavaScope, Map<String, JavaType>> scope = scopes.next();
+
+            writeKey(scope.getKey().toString(), writer);
+            writer.write('{');
+            for (Iterator<Map.Entry<String, JavaType>> types = scope.getValue().entrySet().iterator(); types
+                .hasNext();) {
+                Map.Entry<String, JavaType> type = types.next();
+
+                writeKey(type.getKey(), writer);
+                writeType(type.getValue(), writer);
+
+                if (types.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write('}');
+
+            if (scopes.hasNext()) {
+                writer.write(',');
+            }
+        }
+
+        writer.write('}');
+    }
+
+    private static void writeType(JavaType type, Writer writer) throws IOException
+    {
+        // Same fields, in the same order, as the FASTEN serializer
+        writer.write('{');
+
+        writeKey("methods", writer);
+        writer.write('{');
+        for (Iterator<Map.Entry<Integer, JavaNode>> methods = type.getMethods().entrySet().iterator(); methods
+            .hasNext();) {
+            Map.Entry<Integer, JavaNode> method = methods.next();
+
+            writeKey(method.getKey().toString(), writer);
+            writer.write('{');
+            writeKeyValue("uri", method.getValue().getUri().toString(), writer);
+            writeKey("metadata", writer);
+            writeValue(method.getValue().getMetadata(), writer);
+            writer.write('}');
+
+            if (methods.hasNext()) {
+                writer.write(',');
+            }
+        }
+        writer.write('}');
+        writer.write(',');
+
+        writeKey("superClasses", writer);
+        writeValue(toStrings(type.getSuperClasses()), writer);
+        writer.write(',');
+        writeKey("superInterfaces", writer);
+        writeValue(toStrings(type.getSuperInterfaces()), writer);
+        writer.write(',');
+
+        writeKeyValue("sourceFile", type.getSourceFileName(), writer);
+        writeKeyValue("access", type.getAccess(), writer);
+        writeKey("final", writer);
+        writer.write(String.valueOf(type.isFinal()));
+
+        writer.write('}');
+    }
+
+    private static List<String> toStrings(List<FastenURI> uris)
+    {
+        List<String> strings = new ArrayList<>(uris.size());
+        for (FastenURI uri : uris) {
+            strings.add(uri.toString());
+        }
+
+        return strings;
+    }
+
+    private static void writeValue(Object value, Writer writer) throws IOException
+    {
+        if (value == null || value == JSONObject.NULL) {
+            writer.write("null");
+        } else if (value instanceof String) {
+            writer.write(JSONObject.quote((String) value));
+        } else if (value instanceof Number || value instanceof Boolean) {
+            writer.write(JSONObject.valueToString(value));
+        } else if (value instanceof Map) {
+            // Keep the iteration order of the map
+            writer.write('{');
+            for (Iterator<? extends Map.Entry<?, ?>> entries = ((Map<?, ?>) value).entrySet().iterator(); entries
+                .hasNext();) {
+                Map.Entry<?, ?> entry = entries.next();
+
+                writeKey(String.valueOf(entry.getKey()), writer);
+                writeValue(entry.getValue(), writer);
+
+                if (entries.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write('}');
+        } else if (value instanceof Iterable) {
+            writer.write('[');
+            for (Iterator<?> elements = ((Iterable<?>) value).iterator(); elements.hasNext();) {
+                writeValue(elements.next(), writer);
+
+                if (elements.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write(']');
+        } else {
+            writer.write(JSONObject.valueToString(value));
+        }
+    }
+
+    private static void writeGraph(JavaGraph graph, Writer writer) throws IOException
+    {
+        writeKey("call-sites", writer);
+        writer.write('[');
+
+        for (Iterator<Map.Entry<IntIntPair, Map<Object, Object>>> callSites =
+            graph.getCallSites().entrySet().iterator(); callSites.hasNext();) {
+            Map.Entry<IntIntPair, Map<Object, Object>> callSite = callSites.next();
+
+            writer.write('[');
+            writer.write(String.valueOf(callSite.getKey().leftInt()));
+            writer.write(',');
+            writer.write(String.valueOf(callSite.getKey().rightInt()));
+            writer.write(',');
+            writeValue(callSite.getValue(), writer);
+            writer.write(']');
+
+            if (callSites.hasNext()) {
+                writer.write(',');
+            }
+        }
+
+        writer.write(']');
+    }
+}
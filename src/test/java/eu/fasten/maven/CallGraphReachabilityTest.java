@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eu.fasten.core.data.MergedDirectedGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Unit tests for {@link CallGraphReachability}.
+ *
+ * @version $Id$
+ */
+class CallGraphReachabilityTest
+{
+    private CallGraphReachability createReachability()
+    {
+        // 0 -> 1 -> 2 -> 0 (cycle), 1 -> 3 (external), 4 -> 5 (not reachable from 0)
+        MergedDirectedGraph graph = new MergedDirectedGraph();
+        graph.addInternalNode(0);
+        graph.addInternalNode(1);
+        graph.addInternalNode(2);
+        graph.addExternalNode(3);
+        graph.addInternalNode(4);
+        graph.addInternalNode(5);
+        graph.addEdge(0L, 1L);
+        graph.addEdge(1L, 2L);
+        graph.addEdge(2L, 0L);
+        graph.addEdge(1L, 3L);
+        graph.addEdge(4L, 5L);
+
+        return new CallGraphReachability(graph);
+    }
+
+    @Test
+    void getReachableNodes()
+    {
+        CallGraphReachability reachability = createReachability();
+
+        BitSet reachable = reachability.getReachableNodes(IntArrayList.wrap(new int[] {0}).iterator());
+
+        assertEquals("{0, 1, 2, 3}", reachable.toString());
+
+        // Unknown start nodes are ignored
+        reachable = reachability.getReachableNodes(IntArrayList.wrap(new int[] {-1, 5, 42}).iterator());
+
+        assertEquals("{5}", reachable.toString());
+
+        assertTrue(reachability.isExternal(3));
+        assertFalse(reachability.isExternal(2));
+    }
+
+    @Test
+    void forEachEdge()
+    {
+        CallGraphReachability reachability = createReachability();
+
+        BitSet reachable = reachability.getReachableNodes(IntArrayList.wrap(new int[] {0}).iterator());
+
+        List<String> edges = new ArrayList<>();
+        reachability.forEachEdge(reachable, (source, target) -> edges.add(source + "->" + target));
+        edges.sort(null);
+
+        assertEquals(List.of("0->1", "1->2", "1->3", "2->0"), edges);
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.maven.analyzer.RiskAnalyzerConfiguration;
+import eu.fasten.maven.analyzer.RiskAnalyzerProperties;
+import eu.fasten.maven.cache.MetadataCache;
+
+/**
+ * Unit tests for the enrichment of the stitched graph by {@link CheckMojo}, against a local HTTP server standing for
+ * the FASTEN server.
+ *
+ * @version $Id$
+ */
+class CheckMojoEnrichmentTest
+{
+    private static final File A_CLASSFILE = new File("target/test-classes/eu/fasten/maven/a/A.class");
+
+    private static final File B_CLASSFILE = new File("target/test-classes/eu/fasten/maven/b/B.class");
+
+    private static final File C_CLASSFILE = new File("target/test-classes/eu/fasten/maven/c/C.class");
+
+    private static final File BC_CLASSFILE = new File("target/test-classes/eu/fasten/maven/bc/BC.class");
+
+    private static final String CALLABLES_PATH = "/api/metadata/callables";
+
+    private static final String PACKAGE_B_PATH = "/api/mvn/packages/b:b/1.0/metadata";
+
+    private static final String PACKAGE_C_PATH = "/api/mvn/packages/c:c/1.0/metadata";
+
+    private static final String PACKAGE_METADATA = "{\"metadata\":{\"vulnerabilities\":{}}}";
+
+    private CheckMojo mojo = new CheckMojo();
+
+    private Log log = mock(Log.class);
+
+    private File testWorkDir;
+
+    private MavenProject project = new MavenProject();
+
+    private MavenSession session = mock(MavenSession.class);
+
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+    private HttpServer server;
+
+    private final Map<String, HttpHandler> handlers = new ConcurrentHashMap<>();
+
+    private final List<String> callablesRequests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.testWorkDir = new File("target/test-enrichment-" + new Date().getTime()).getAbsoluteFile();
+        this.testWorkDir.mkdirs();
+
+        // Anything not explicitly handled (like the call graphs) is unknown by the server
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", exchange -> this.handlers
+            .getOrDefault(exchange.getRequestURI().getPath(), e -> respond(e, 404, null)).handle(exchange));
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+
+        this.mojo.setLog(this.log);
+
+        Model model = new Model();
+        model.setGroupId("pgroupid");
+        model.setArtifactId("partifactid");
+        model.setVersion("1.0-SNAPSHOT");
+        this.project.setModel(model);
+        FieldUtils.writeField(this.mojo, "project", this.project, true);
+
+        File projectArtifactFile = new File(this.testWorkDir, "project.jar");
+        jar(projectArtifactFile, A_CLASSFILE);
+        this.project.setArtifact(artifact("pgroupid", "partifactid", "1.0-SNAPSHOT", projectArtifactFile));
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        File dependencyCDir = new File(this.testWorkDir, "C.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+        jar(dependencyCDir, C_CLASSFILE, BC_CLASSFILE);
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir));
+        artifacts.add(artifact("c", "c", "1.0", dependencyCDir));
+        this.project.setArtifacts(artifacts);
+
+        when(this.session.isOffline()).thenReturn(false);
+        FieldUtils.writeField(this.mojo, "session", this.session, true);
+
+        FieldUtils.writeField(this.mojo, "outputDirectory", new File(this.testWorkDir, "PROJECT/target/call-graphs/"),
+            true);
+        FieldUtils.writeField(this.mojo, "fastenApiUrl",
+            "http://localhost:" + this.server.getAddress().getPort() + "/api", true);
+        // The dependencies are built locally, make sure their metadata are resolved anyway
+        FieldUtils.writeField(this.mojo, "metadataDownload", CheckMojo.MetadataDownload.releases, true);
+        FieldUtils.writeField(this.mojo, "metadataCacheDirectory", new File(this.testWorkDir, "metadata"), true);
+        FieldUtils.writeField(this.mojo, "httpRetries", 0, true);
+    }
+
+    @AfterEach
+    void afterEach()
+    {
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException
+    {
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(bytes);
+            }
+        } else {
+            exchange.sendResponseHeaders(code, -1);
+        }
+
+        exchange.close();
+    }
+
+    private void jar(File file, File... classFiles) throws FileNotFoundException, IOException
+    {
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            try (JarOutputStream stream = new JarOutputStream(fos, manifest)) {
+                for (File classFile : classFiles) {
+                    ZipEntry entry = new ZipEntry(classFile.getName());
+                    stream.putNextEntry(entry);
+                    FileUtils.copyFile(classFile, stream);
+                }
+            }
+        }
+    }
+
+    private Artifact artifact(String groupId, String artifactId, String version, File file)
+    {
+        DefaultArtifact artifact = new DefaultArtifact(groupId, artifactId, version, null, "jar", "", null);
+        artifact.setFile(file);
+
+        return artifact;
+    }
+
+    private void setRisk(String type) throws IllegalAccessException
+    {
+        RiskAnalyzerConfiguration configuration = new RiskAnalyzerConfiguration();
+        configuration.setType(type);
+        configuration.setProperties(new RiskAnalyzerProperties());
+        FieldUtils.writeField(this.mojo, "risks", Arrays.asList(configuration), true);
+    }
+
+    private MavenExtendedRevisionJavaCallGraph getDependency(String product)
+    {
+        return this.mojo.graph.getOptimizedDependenciesRCGs().stream().filter(cg -> cg.product.equals(product))
+            .findFirst().get();
+    }
+
+    private List<MavenGraphNode> getRemoteNodes()
+    {
+        return this.mojo.graph.getOptimizedNodes().stream().filter(
+            node -> node.getScope() == JavaScope.internalTypes && node.getPackageCG().get().isRemote())
+            .collect(Collectors.toList());
+    }
+
+    private Set<String> getRequestedCallables()
+    {
+        Set<String> uris = new LinkedHashSet<>();
+        for (String request : this.callablesRequests) {
+            new JSONArray(request).forEach(uri -> uris.add((String) uri));
+        }
+
+        return uris;
+    }
+
+    private JSONArray readCallables(HttpExchange exchange) throws IOException
+    {
+        String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        this.callablesRequests.add(body);
+
+        return new JSONArray(body);
+    }
+
+    private void respondCallables(HttpExchange exchange, JSONArray uris, Predicate<String> known) throws IOException
+    {
+        JSONObject response = new JSONObject();
+        for (Object uri : uris) {
+            if (known.test((String) uri)) {
+                response.put((String) uri, new JSONObject("{\"quality\":{\"metrics\":{}}}"));
+            }
+        }
+
+        respond(exchange, 200, response.toString());
+    }
+
+    @Test
+    void testPackageMetadataRevalidation() throws Exception
+    {
+        setRisk("fasten.security");
+
+        // An expired entry for b
+        MetadataCache cache = new MetadataCache(new File(this.testWorkDir, "metadata"));
+        cache.storePackage("b:b", "1.0", new JSONObject(PACKAGE_METADATA), "\"b1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+        Collection<File> files = FileUtils.listFiles(cache.getDirectory(), new String[] {"json"}, true);
+        assertEquals(1, files.size());
+        File entryFile = files.iterator().next();
+        JSONObject entryJSON = new JSONObject(FileUtils.readFileToString(entryFile, StandardCharsets.UTF_8));
+        entryJSON.put("time", 0);
+        FileUtils.write(entryFile, entryJSON.toString(), StandardCharsets.UTF_8);
+        assertFalse(cache.getPackage("b:b", "1.0").isFresh(60000));
+
+        Map<String, String> validators = new ConcurrentHashMap<>();
+        this.handlers.put(PACKAGE_B_PATH, exchange -> {
+            validators.put("If-None-Match", exchange.getRequestHeaders().getFirst("If-None-Match"));
+            validators.put("If-Modified-Since", exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+
+            respond(exchange, 304, null);
+        });
+        this.handlers.put(PACKAGE_C_PATH, exchange -> {
+            exchange.getResponseHeaders().add("ETag", "\"c1\"");
+
+            respond(exchange, 200, PACKAGE_METADATA);
+        });
+
+        this.mojo.execute();
+
+        // The cache validators were sent
+        assertEquals("\"b1\"", validators.get("If-None-Match"));
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", validators.get("If-Modified-Since"));
+
+        // The cached metadata were used even if the server did not send them again
+        assertTrue(getDependency("b:b").getMetadata().containsKey("vulnerabilities"));
+        assertTrue(getDependency("c:c").getMetadata().containsKey("vulnerabilities"));
+
+        // The entry is fresh again and kept its validators
+        MetadataCache.Entry entry = cache.getPackage("b:b", "1.0");
+        assertTrue(entry.isFresh(60000));
+        assertEquals("\"b1\"", entry.getETag());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", entry.getLastModified());
+        assertEquals("\"c1\"", cache.getPackage("c:c", "1.0").getETag());
+    }
+
+    @Test
+    void testCallableMetadataMisses() throws Exception
+    {
+        setRisk("fasten.quality");
+
+        // The server only knows the callables of b
+        Predicate<String> known = uri -> uri.startsWith("fasten://mvn!b:b$1.0/");
+        this.handlers.put(CALLABLES_PATH, exchange -> respondCallables(exchange, readCallables(exchange), known));
+
+        this.mojo.execute();
+
+        Set<String> allURIs = getRemoteNodes().stream().map(MavenGraphNode::getFullURI).collect(Collectors.toSet());
+        Set<String> bURIs = allURIs.stream().filter(known).collect(Collectors.toSet());
+        assertFalse(bURIs.isEmpty());
+        assertEquals(allURIs, getRequestedCallables());
+
+        // The unknown callables are asked again once the negative TTL expired, unlike the known ones
+        this.callablesRequests.clear();
+        FieldUtils.writeField(this.mojo, "callableMetadataMissTTL", 0L, true);
+
+        this.mojo.execute();
+
+        Set<String> missedURIs = new LinkedHashSet<>(allURIs);
+        missedURIs.removeAll(bURIs);
+        assertEquals(missedURIs, getRequestedCallables());
+
+        // Still missing but cached for a while
+        this.callablesRequests.clear();
+        FieldUtils.writeField(this.mojo, "callableMetadataMissTTL", 60L, true);
+
+        this.mojo.execute();
+
+        assertTrue(this.callablesRequests.isEmpty());
+        for (MavenGraphNode node : getRemoteNodes()) {
+            assertEquals(bURIs.contains(node.getFullURI()),
+                node.getLocalNode().getMetadata().containsKey("quality"), node.getFullURI());
+        }
+    }
+
+    @Test
+    void testCallableMetadataBatches() throws Exception
+    {
+        setRisk("fasten.quality");
+        FieldUtils.writeField(this.mojo, "metadataCache", false, true);
+        FieldUtils.writeField(this.mojo, "metadataBatch", 2, true);
+
+        // The batch containing C.mC1 fails
+        String failingURI = "fasten://mvn!c:c$1.0/eu.fasten.maven.c/C.mC1()%2Fjava.lang%2FVoidType";
+        this.handlers.put(CALLABLES_PATH, exchange -> {
+            JSONArray uris = readCallables(exchange);
+            if (uris.toList().contains(failingURI)) {
+                respond(exchange, 500, null);
+            } else {
+                respondCallables(exchange, uris, uri -> true);
+            }
+        });
+
+        this.mojo.execute();
+
+        List<MavenGraphNode> nodes = getRemoteNodes();
+        Map<String, MavenGraphNode> nodesByURI =
+            nodes.stream().collect(Collectors.toMap(MavenGraphNode::getFullURI, node -> node));
+        assertTrue(nodesByURI.containsKey(failingURI));
+
+        // One request per batch, each callable sent once
+        assertEquals((nodes.size() + 1) / 2, this.callablesRequests.size());
+        assertEquals(nodesByURI.keySet(), getRequestedCallables());
+
+        // The failing batch does not prevent the others from enriching their nodes
+        for (String request : this.callablesRequests) {
+            JSONArray uris = new JSONArray(request);
+            assertTrue(uris.length() <= 2);
+            boolean failed = uris.toList().contains(failingURI);
+            for (Object uri : uris) {
+                assertEquals(!failed, nodesByURI.get(uri).getLocalNode().getMetadata().containsKey("quality"),
+                    (String) uri);
+            }
+        }
+        verify(this.log).warn("Unexpected code when resolving callables metadata: 500");
+    }
+
+    @Test
+    void testPackageMetadataFailure() throws Exception
+    {
+        setRisk("fasten.security");
+        FieldUtils.writeField(this.mojo, "metadataCache", false, true);
+
+        // The metadata of b cannot be parsed
+        this.handlers.put(PACKAGE_B_PATH, exchange -> respond(exchange, 200, "{"));
+        this.handlers.put(PACKAGE_C_PATH, exchange -> respond(exchange, 200, PACKAGE_METADATA));
+
+        this.mojo.execute();
+
+        assertFalse(getDependency("b:b").getMetadata().containsKey("vulnerabilities"));
+        assertTrue(getDependency("c:c").getMetadata().containsKey("vulnerabilities"));
+        verify(this.log).warn(startsWith("Failed to resolve meta data for dependency b:b:jar:1.0"));
+    }
+}
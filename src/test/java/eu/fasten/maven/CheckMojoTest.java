@@ -20,22 +20,45 @@
 package eu.fasten.maven;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.jar.Attributes;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
@@ -54,15 +77,38 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.JSONUtils;
 import eu.fasten.core.data.JavaScope;
+import eu.fasten.core.data.JavaType;
+import eu.fasten.core.data.PartialJavaCallGraph;
+import eu.fasten.maven.analyzer.BinaryRiskAnalyzer;
+import eu.fasten.maven.analyzer.MavenRiskContext;
+import eu.fasten.maven.analyzer.QualityRiskAnalyzer;
 import eu.fasten.maven.analyzer.RiskAnalyzerConfiguration;
+import eu.fasten.maven.analyzer.RiskAnalyzerProperties;
+import eu.fasten.maven.analyzer.RiskContext;
 import eu.fasten.maven.analyzer.RiskReport;
 import eu.fasten.maven.analyzer.RiskReport.Message;
 import eu.fasten.maven.analyzer.SecurityRiskAnalyzer;
+import eu.fasten.maven.analyzer.quality.ComplexityQualityMetricAnalyzer;
+import eu.fasten.maven.metrics.ExecutionMetrics;
+import eu.fasten.maven.serialization.BinaryCallGraphSerializer;
+import eu.fasten.maven.serialization.JSONCallGraphReader;
+import eu.fasten.maven.serialization.JSONCallGraphWriter;
 
 /**
  * Unit tests for {@link CheckMojo}.
@@ -162,9 +208,46 @@ class CheckMojoTest
         return artifact;
     }
 
-    @Test
-    void testStitching() throws MojoExecutionException, MojoFailureException, IOException
+    private void assertSameCallGraph(PartialJavaCallGraph expected, PartialJavaCallGraph actual)
+    {
+        assertEquals(expected.forge, actual.forge);
+        assertEquals(expected.product, actual.product);
+        assertEquals(expected.version, actual.version);
+        assertEquals(expected.timestamp, actual.timestamp);
+        assertEquals(expected.getCgGenerator(), actual.getCgGenerator());
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+
+        // Types and methods
+        assertEquals(expected.getClassHierarchy().keySet(), actual.getClassHierarchy().keySet());
+        expected.getClassHierarchy().forEach((scope, types) -> {
+            Map<String, JavaType> actualTypes = actual.getClassHierarchy().get(scope);
+            assertEquals(types.keySet(), actualTypes.keySet());
+            types.forEach((uri, type) -> {
+                JavaType actualType = actualTypes.get(uri);
+                assertEquals(type.getSourceFileName(), actualType.getSourceFileName(), uri);
+                assertEquals(type.getAccess(), actualType.getAccess(), uri);
+                assertEquals(type.isFinal(), actualType.isFinal(), uri);
+                assertEquals(type.getSuperClasses().toString(), actualType.getSuperClasses().toString(), uri);
+                assertEquals(type.getSuperInterfaces().toString(), actualType.getSuperInterfaces().toString(), uri);
+                assertEquals(type.getMethods().keySet(), actualType.getMethods().keySet(), uri);
+                type.getMethods().forEach((id, method) -> {
+                    assertEquals(method.getUri().toString(), actualType.getMethods().get(id).getUri().toString());
+                    assertEquals(method.getMetadata(), actualType.getMethods().get(id).getMetadata());
+                });
+            });
+        });
+
+        // Call sites
+        assertEquals(expected.getGraph().getCallSites(), actual.getGraph().getCallSites());
+    }
+
+    @ParameterizedTest
+    @EnumSource(MavenGraph.NodeMode.class)
+    void testStitching(MavenGraph.NodeMode nodeMode)
+        throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
     {
+        FieldUtils.writeField(this.mojo, "graphNodes", nodeMode, true);
+
         jar(this.projectArtifactFile, A_CLASSFILE);
 
         File dependencyBDir = new File(this.testWorkDir, "B.jar");
@@ -209,6 +292,602 @@ class CheckMojoTest
                 .collect(Collectors.toSet()));
     }
 
+    private List<String> getMessages(List<Message> messages)
+    {
+        return messages.stream().map(Message::getFormattedMessage).collect(Collectors.toList());
+    }
+
+    @Test
+    void testSharedTraversal() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        File dependencyCDir = new File(this.testWorkDir, "C.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+        jar(dependencyCDir, C_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        artifacts.add(artifact("c", "c", "1.0", dependencyCDir, null));
+        this.project.setArtifacts(artifacts);
+
+        when(this.session.isOffline()).thenReturn(true);
+
+        this.mojo.execute();
+
+        MavenGraph graph = this.mojo.graph;
+
+        // Give a different complexity to each internal node so that some of them are reported
+        int complexity = 0;
+        for (MavenGraphNode node : graph.getOptimizedNodes()) {
+            if (node.getScope() == JavaScope.internalTypes) {
+                Map<String, Object> metrics = new HashMap<>();
+                metrics.put("complexity", complexity++);
+                Map<String, Object> quality = new HashMap<>();
+                quality.put("metrics", metrics);
+                node.getLocalNode().getMetadata().put("quality", quality);
+            }
+        }
+
+        RiskAnalyzerConfiguration qualityConfiguration = new RiskAnalyzerConfiguration();
+        qualityConfiguration.setType("fasten.quality");
+        RiskAnalyzerProperties properties = new RiskAnalyzerProperties();
+        properties.put(ComplexityQualityMetricAnalyzer.class.getName(), 2);
+        qualityConfiguration.setProperties(properties);
+        QualityRiskAnalyzer qualityAnalyzer = new QualityRiskAnalyzer();
+        qualityAnalyzer.initialize(qualityConfiguration);
+
+        RiskAnalyzerConfiguration binaryConfiguration = new RiskAnalyzerConfiguration();
+        binaryConfiguration.setType("fasten.binary");
+        BinaryRiskAnalyzer binaryAnalyzer = new BinaryRiskAnalyzer();
+        binaryAnalyzer.initialize(binaryConfiguration);
+
+        RiskContext context = new MavenRiskContext(graph, this.session, this.project);
+
+        // Both analyzers in the same traversal
+        RiskReport qualityReport = new RiskReport(qualityAnalyzer);
+        RiskReport binaryReport = new RiskReport(binaryAnalyzer);
+        graph.visitOptimizedGraph(Arrays.asList(qualityAnalyzer.createVisitor(context, qualityReport),
+            binaryAnalyzer.createVisitor(context, binaryReport)));
+
+        assertFalse(qualityReport.getErrors().isEmpty());
+        assertFalse(binaryReport.getErrors().isEmpty());
+
+        // Each analyzer alone
+        RiskReport qualityAloneReport = qualityAnalyzer.analyze(context);
+        RiskReport binaryAloneReport = binaryAnalyzer.analyze(context);
+
+        assertEquals(getMessages(qualityAloneReport.getErrors()), getMessages(qualityReport.getErrors()));
+        assertEquals(getMessages(qualityAloneReport.getWarnings()), getMessages(qualityReport.getWarnings()));
+        assertEquals(getMessages(binaryAloneReport.getErrors()), getMessages(binaryReport.getErrors()));
+        assertEquals(getMessages(binaryAloneReport.getWarnings()), getMessages(binaryReport.getWarnings()));
+    }
+
+    @Test
+    void testOffline() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        when(this.session.isOffline()).thenReturn(true);
+
+        CheckMojo offlineMojo = spy(this.mojo);
+        offlineMojo.execute();
+
+        verify(offlineMojo, never()).createHttpClient(any());
+        assertFalse(offlineMojo.graph.getOptimizedNodes().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIndexSequential() throws Exception
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        File dependencyCDir = new File(this.testWorkDir, "C.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+        jar(dependencyCDir, C_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        artifacts.add(artifact("c", "c", "1.0", dependencyCDir, null));
+        this.project.setArtifacts(artifacts);
+
+        this.mojo.execute();
+
+        MavenGraph graph = this.mojo.graph;
+
+        // Parallel streams started from a pool task run in that pool, so this graph is indexed by a single thread
+        ForkJoinPool pool = new ForkJoinPool(1);
+        MavenGraph sequentialGraph;
+        try {
+            sequentialGraph = pool.submit(
+                () -> new MavenGraph(graph.getProjectCG(), graph.getFullDependenciesCGs(), mock(Log.class))).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        Map<Long, MavenGraphNode> nodes =
+            (Map<Long, MavenGraphNode>) FieldUtils.readField(graph, "graphIdToNode", true);
+        Map<Long, MavenGraphNode> sequentialNodes =
+            (Map<Long, MavenGraphNode>) FieldUtils.readField(sequentialGraph, "graphIdToNode", true);
+        assertFalse(sequentialNodes.isEmpty());
+        assertEquals(sequentialNodes.keySet(), nodes.keySet());
+        for (Map.Entry<Long, MavenGraphNode> entry : sequentialNodes.entrySet()) {
+            MavenGraphNode node = nodes.get(entry.getKey());
+            assertEquals(entry.getValue().getScope(), node.getScope());
+            assertEquals(entry.getValue().getFullURI(), node.getFullURI());
+            assertSame(entry.getValue().getLocalNode(), node.getLocalNode());
+        }
+
+        Map<String, Map<FastenURI, Long>> uris =
+            (Map<String, Map<FastenURI, Long>>) FieldUtils.readField(graph, "localProductURIToGraphId", true);
+        Map<String, Map<FastenURI, Long>> sequentialURIs = (Map<String, Map<FastenURI, Long>>) FieldUtils
+            .readField(sequentialGraph, "localProductURIToGraphId", true);
+        assertEquals(sequentialURIs.keySet(), uris.keySet());
+        for (Map.Entry<String, Map<FastenURI, Long>> product : sequentialURIs.entrySet()) {
+            Map<FastenURI, Long> productURIs = uris.get(product.getKey());
+            assertEquals(product.getValue().keySet(), productURIs.keySet(), product.getKey());
+            for (Map.Entry<FastenURI, Long> entry : product.getValue().entrySet()) {
+                assertEquals(entry.getValue(), productURIs.get(entry.getKey()), entry.getKey().toString());
+            }
+        }
+    }
+
+    @Test
+    void testStitchingParallel()
+        throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        File dependencyCDir = new File(this.testWorkDir, "C.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+        jar(dependencyCDir, C_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        artifacts.add(artifact("c", "c", "1.0", dependencyCDir, null));
+        this.project.setArtifacts(artifacts);
+
+        FieldUtils.writeField(this.mojo, "threads", 2, true);
+
+        this.mojo.execute();
+
+        // The dependencies call graphs are collected in the dependencies order
+        assertEquals(Arrays.asList("b:b", "c:c"), this.mojo.graph.getFullDependenciesCGs().stream()
+            .map(cg -> cg.product).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testCache() throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        this.project.setArtifacts(artifacts);
+
+        File cacheDirectory = new File(this.testWorkDir, "cache");
+        FieldUtils.writeField(this.mojo, "cacheDirectory", cacheDirectory, true);
+
+        this.mojo.execute();
+
+        // The dependency call graph is built and stored in the cache
+        Collection<File> cacheFiles = FileUtils.listFiles(cacheDirectory, new String[] {"json"}, true);
+        assertEquals(1, cacheFiles.size());
+        assertEquals(1, getPhase("dependency.build").getLong("calls"));
+        assertEquals(0, getPhase("dependency.cache").getLong("items"));
+
+        // Make sure a rewrite of the entry would be visible
+        File cacheFile = cacheFiles.iterator().next();
+        assertTrue(cacheFile.setLastModified(cacheFile.lastModified() - 60000));
+        long lastModified = cacheFile.lastModified();
+
+        List<String> nodes = this.mojo.graph.getOptimizedNodes().stream().map(MavenGraphNode::getFullURI).sorted()
+            .collect(Collectors.toList());
+
+        this.mojo.execute();
+
+        // The dependency call graph is read from the cache without being built again
+        assertEquals(1, getPhase("dependency.cache").getLong("items"));
+        assertNull(getPhase("dependency.build"));
+        assertEquals(lastModified, cacheFile.lastModified());
+        assertEquals(cacheFiles, FileUtils.listFiles(cacheDirectory, new String[] {"json"}, true));
+
+        // The cached call graph produce the same stitched graph
+        assertEquals(nodes, this.mojo.graph.getOptimizedNodes().stream().map(MavenGraphNode::getFullURI).sorted()
+            .collect(Collectors.toList()));
+    }
+
+    private JSONObject getPhase(String name) throws IllegalAccessException
+    {
+        ExecutionMetrics metrics = (ExecutionMetrics) FieldUtils.readField(this.mojo, "executionMetrics", true);
+
+        for (Object phase : metrics.toJSON().getJSONArray("phases")) {
+            if (((JSONObject) phase).getString("name").equals(name)) {
+                return (JSONObject) phase;
+            }
+        }
+
+        return null;
+    }
+
+    @Test
+    void testMetricsDisabled() throws IOException, IllegalAccessException
+    {
+        FieldUtils.writeField(this.mojo, "metrics", false, true);
+
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        when(this.session.isOffline()).thenReturn(true);
+
+        RiskAnalyzerConfiguration configuration = new RiskAnalyzerConfiguration();
+        configuration.setType("fasten.binary");
+        FieldUtils.writeField(this.mojo, "risks", Arrays.asList(configuration), true);
+
+        assertThrows(MojoFailureException.class, () -> this.mojo.execute());
+
+        // The analyzers are executed but not measured
+        assertFalse(this.mojo.reports.get(0).getErrors().isEmpty());
+        ExecutionMetrics metrics = (ExecutionMetrics) FieldUtils.readField(this.mojo, "executionMetrics", true);
+        assertEquals(0, metrics.toJSON().getJSONArray("phases").length());
+        assertFalse(new File(this.projectWorkDir, "target/call-graphs/fasten-metrics.json").exists());
+    }
+
+    @Test
+    void testSessionCache()
+        throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
+    {
+        when(this.session.getRepositorySession()).thenReturn(new DefaultRepositorySystemSession());
+
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        this.project.setArtifacts(artifacts);
+
+        // A second module of the same session with the same dependency
+        CheckMojo mojo2 = new CheckMojo();
+        Log log2 = mock(Log.class);
+        mojo2.setLog(log2);
+        MavenProject project2 = new MavenProject();
+        Model model2 = new Model();
+        model2.setGroupId("pgroupid");
+        model2.setArtifactId("partifactid2");
+        model2.setVersion("1.0-SNAPSHOT");
+        project2.setModel(model2);
+        File project2ArtifactFile = new File(this.testWorkDir, "project2.jar");
+        jar(project2ArtifactFile, A_CLASSFILE);
+        project2.setArtifact(artifact("pgroupid", "partifactid2", "1.0-SNAPSHOT", project2ArtifactFile, null));
+        Artifact dependency2 = artifact("b", "b", "1.0", dependencyBDir, null);
+        project2.setArtifacts(new LinkedHashSet<>(Arrays.asList(dependency2)));
+        FieldUtils.writeField(mojo2, "project", project2, true);
+        FieldUtils.writeField(mojo2, "session", this.session, true);
+        FieldUtils.writeField(mojo2, "outputDirectory", new File(this.testWorkDir, "PROJECT2/target/call-graphs/"),
+            true);
+
+        // Build both modules at the same time
+        CompletableFuture<Void> execution1 = CompletableFuture.runAsync(() -> {
+            try {
+                this.mojo.execute();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        CompletableFuture<Void> execution2 = CompletableFuture.runAsync(() -> {
+            try {
+                mojo2.execute();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        execution1.join();
+        execution2.join();
+
+        // The dependency call graph was produced by only one of the modules
+        long reused = mockingDetails(this.log).getInvocations().stream()
+            .filter(invocation -> isReusedMessage(invocation.getArguments())).count()
+            + mockingDetails(log2).getInvocations().stream()
+                .filter(invocation -> isReusedMessage(invocation.getArguments())).count();
+        assertEquals(1, reused);
+
+        // Each module has its own copy of the call graph
+        MavenExtendedRevisionJavaCallGraph callGraph1 = this.mojo.graph.getFullDependenciesCGs().get(0);
+        MavenExtendedRevisionJavaCallGraph callGraph2 = mojo2.graph.getFullDependenciesCGs().get(0);
+        assertNotSame(callGraph1, callGraph2);
+        assertSame(dependency2, callGraph2.getArtifact());
+        assertSameCallGraph(callGraph1, callGraph2);
+
+        // Enriching the call graph of a module does not affect the other one
+        callGraph1.getMetadata().put("test", "value");
+        callGraph1.getClassHierarchy().get(JavaScope.internalTypes).values().iterator().next().getMethods().values()
+            .iterator().next().getMetadata().put("test", "value");
+        assertFalse(callGraph2.getMetadata().containsKey("test"));
+        assertFalse(callGraph2.getClassHierarchy().get(JavaScope.internalTypes).values().stream()
+            .flatMap(type -> type.getMethods().values().stream()).anyMatch(m -> m.getMetadata().containsKey("test")));
+    }
+
+    private boolean isReusedMessage(Object[] arguments)
+    {
+        return arguments.length > 0 && arguments[0] instanceof String
+            && ((String) arguments[0]).startsWith("Reusing the call graph of artifact b:b:");
+    }
+
+    @Test
+    void testUpToDate() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        this.mojo.execute();
+
+        verify(this.log, never()).info("The project call graph is up to date.");
+
+        this.mojo.execute();
+
+        verify(this.log, times(1)).info("The project call graph is up to date.");
+
+        List<String> nodes = this.mojo.graph.getOptimizedNodes().stream().map(MavenGraphNode::getFullURI).sorted()
+            .collect(Collectors.toList());
+
+        // A modified project is analyzed again
+        jar(this.projectArtifactFile, A_CLASSFILE, B_CLASSFILE);
+
+        this.mojo.execute();
+
+        verify(this.log, times(1)).info("The project call graph is up to date.");
+        assertTrue(this.mojo.graph.getOptimizedNodes().size() > nodes.size());
+    }
+
+    @Test
+    void testIncremental()
+        throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
+    {
+        FieldUtils.writeField(this.mojo, "incremental", true, true);
+
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        this.mojo.execute();
+
+        List<String> nodes = this.mojo.graph.getOptimizedNodes().stream().map(MavenGraphNode::getFullURI).sorted()
+            .collect(Collectors.toList());
+
+        // Force a different project file with the same classes
+        File resource = new File(this.testWorkDir, "resource.txt");
+        FileUtils.write(resource, "resource", StandardCharsets.UTF_8);
+        jar(this.projectArtifactFile, A_CLASSFILE, resource);
+
+        this.mojo.execute();
+
+        verify(this.log).info("Updating the project call graph for 0 modified classes.");
+        assertEquals(nodes, this.mojo.graph.getOptimizedNodes().stream().map(MavenGraphNode::getFullURI).sorted()
+            .collect(Collectors.toList()));
+
+        // A new class requires a full build
+        jar(this.projectArtifactFile, A_CLASSFILE, B_CLASSFILE);
+
+        this.mojo.execute();
+
+        verify(this.log).info("Classes were added or removed, the project call graph needs to be rebuilt.");
+    }
+
+    @Test
+    void testIncrementalModifiedMethod()
+        throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
+    {
+        FieldUtils.writeField(this.mojo, "incremental", true, true);
+
+        jar(this.projectArtifactFile, A_CLASSFILE, B_CLASSFILE);
+
+        this.mojo.execute();
+
+        Map<String, Map<Object, Object>> initialCallSites = getCallSites(this.mojo.graph.getProjectCG());
+
+        // Remove the call to Missing.mMissing() from the body of A.m2()
+        File modifiedA = new File(this.testWorkDir, "modified/A.class");
+        FileUtils.writeByteArrayToFile(modifiedA,
+            removeCalls(FileUtils.readFileToByteArray(A_CLASSFILE), "eu/fasten/maven/missing/Missing"));
+        jar(this.projectArtifactFile, modifiedA, B_CLASSFILE);
+
+        this.mojo.execute();
+
+        verify(this.log).info("Updating the project call graph for 1 modified classes.");
+        Map<String, Map<Object, Object>> incrementalCallSites = getCallSites(this.mojo.graph.getProjectCG());
+
+        // Build the same project from scratch
+        FileUtils.deleteDirectory(new File(this.projectWorkDir, "target/call-graphs/"));
+        FieldUtils.writeField(this.mojo, "incremental", false, true);
+
+        this.mojo.execute();
+
+        Map<String, Map<Object, Object>> fullCallSites = getCallSites(this.mojo.graph.getProjectCG());
+
+        assertNotEquals(initialCallSites, fullCallSites);
+        assertEquals(fullCallSites, incrementalCallSites);
+    }
+
+    private byte[] removeCalls(byte[] classBytes, String owner)
+    {
+        ClassReader reader = new ClassReader(classBytes);
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(new ClassVisitor(Opcodes.ASM7, writer)
+        {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                String[] exceptions)
+            {
+                return new MethodVisitor(Opcodes.ASM7,
+                    super.visitMethod(access, name, descriptor, signature, exceptions))
+                {
+                    @Override
+                    public void visitMethodInsn(int opcode, String methodOwner, String methodName,
+                        String methodDescriptor, boolean isInterface)
+                    {
+                        // Only static methods without parameters and returning void can be removed safely
+                        if (opcode != Opcodes.INVOKESTATIC || !methodOwner.equals(owner)
+                            || !methodDescriptor.equals("()V")) {
+                            super.visitMethodInsn(opcode, methodOwner, methodName, methodDescriptor, isInterface);
+                        }
+                    }
+                };
+            }
+        }, 0);
+
+        return writer.toByteArray();
+    }
+
+    private Map<String, Map<Object, Object>> getCallSites(PartialJavaCallGraph callGraph)
+    {
+        // The ids of the nodes differ between an incremental and a full build
+        Map<Integer, String> uris = new HashMap<>();
+        callGraph.getClassHierarchy().values().forEach(types -> types.values()
+            .forEach(type -> type.getMethods().forEach((id, node) -> uris.put(id, node.getUri().toString()))));
+
+        Map<String, Map<Object, Object>> callSites = new HashMap<>();
+        callGraph.getGraph().getCallSites().forEach((call, metadata) -> callSites
+            .put(uris.get(call.leftInt()) + " -> " + uris.get(call.rightInt()), metadata));
+
+        return callSites;
+    }
+
+    @Test
+    void testSerialization() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        this.mojo.execute();
+
+        File projectFile = new File(this.projectWorkDir, "target/call-graphs/project.json");
+        MavenExtendedRevisionJavaCallGraph projectCG;
+        try (InputStream stream = new FileInputStream(projectFile)) {
+            projectCG = new MavenExtendedRevisionJavaCallGraph(this.project.getArtifact(), stream, false);
+        }
+
+        // The streamed json is the same as the one produced by FASTEN
+        assertTrue(new JSONObject(FileUtils.readFileToString(projectFile, StandardCharsets.UTF_8))
+            .similar(new JSONObject(JSONUtils.toJSONString(projectCG))));
+    }
+
+    @Test
+    void testStreamedSerialization() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        File dependencyCDir = new File(this.testWorkDir, "C.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+        jar(dependencyCDir, C_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        artifacts.add(artifact("c", "c", "1.0", dependencyCDir, null));
+        this.project.setArtifacts(artifacts);
+
+        this.mojo.execute();
+
+        List<MavenExtendedRevisionJavaCallGraph> callGraphs = new ArrayList<>();
+        callGraphs.add(this.mojo.graph.getProjectCG());
+        callGraphs.addAll(this.mojo.graph.getFullDependenciesCGs());
+
+        for (MavenExtendedRevisionJavaCallGraph callGraph : callGraphs) {
+            StringWriter writer = new StringWriter();
+            JSONCallGraphWriter.write(callGraph, writer);
+
+            // Byte for byte the same json as the one produced by FASTEN
+            assertEquals(JSONUtils.toJSONString(callGraph), writer.toString());
+        }
+    }
+
+    @Test
+    void testStreamingParse() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        this.project.setArtifacts(artifacts);
+
+        this.mojo.execute();
+
+        List<MavenExtendedRevisionJavaCallGraph> callGraphs = new ArrayList<>();
+        callGraphs.add(this.mojo.graph.getProjectCG());
+        callGraphs.addAll(this.mojo.graph.getFullDependenciesCGs());
+
+        for (MavenExtendedRevisionJavaCallGraph callGraph : callGraphs) {
+            // The same json as the one returned by the FASTEN server
+            String json = JSONUtils.toJSONString(callGraph);
+
+            MavenExtendedRevisionJavaCallGraph domCG =
+                new MavenExtendedRevisionJavaCallGraph(callGraph.getArtifact(), new JSONObject(json), false);
+            MavenExtendedRevisionJavaCallGraph streamedCG =
+                JSONCallGraphReader.read(callGraph.getArtifact(), new StringReader(json), false);
+
+            assertSameCallGraph(domCG, streamedCG);
+        }
+    }
+
+    @Test
+    void testBinarySerializationRoundTrip() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        this.project.setArtifacts(artifacts);
+
+        this.mojo.execute();
+
+        List<MavenExtendedRevisionJavaCallGraph> callGraphs = new ArrayList<>();
+        callGraphs.add(this.mojo.graph.getProjectCG());
+        callGraphs.addAll(this.mojo.graph.getFullDependenciesCGs());
+
+        for (MavenExtendedRevisionJavaCallGraph callGraph : callGraphs) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            BinaryCallGraphSerializer.serialize(callGraph, output);
+
+            MavenExtendedRevisionJavaCallGraph readCG = BinaryCallGraphSerializer.read(callGraph.getArtifact(),
+                new ByteArrayInputStream(output.toByteArray()), false);
+
+            // Same types, methods and call sites as the call graph built by OPAL
+            assertSameCallGraph(callGraph, readCG);
+        }
+    }
+
+    @Test
+    void testBinarySerializationSize() throws MojoExecutionException, MojoFailureException, IOException
+    {
+        // A real library (ASM) to get a call graph with a realistic size and id distribution
+        FileUtils.copyFile(new File(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().getPath()),
+            this.projectArtifactFile);
+
+        when(this.session.isOffline()).thenReturn(true);
+
+        this.mojo.execute();
+
+        MavenExtendedRevisionJavaCallGraph callGraph = this.mojo.graph.getProjectCG();
+        assertTrue(callGraph.getGraph().getCallSites().size() > 1000);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCallGraphSerializer.serialize(callGraph, output);
+
+        // The string table and the delta encoded call sites should make it much smaller than the json
+        int jsonSize = JSONUtils.toJSONString(callGraph).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(output.size() * 2 < jsonSize, "Binary size " + output.size() + ", json size " + jsonSize);
+    }
+
     @Test
     // TODO: refactor the test based on Wiremock
     @Disabled
@@ -279,9 +958,13 @@ class CheckMojoTest
         // TODO
     }
 
-    @Test
-    void testBinary() throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
+    @ParameterizedTest
+    @EnumSource(MavenGraph.NodeMode.class)
+    void testBinary(MavenGraph.NodeMode nodeMode)
+        throws MojoExecutionException, MojoFailureException, IOException, IllegalAccessException
     {
+        FieldUtils.writeField(this.mojo, "graphNodes", nodeMode, true);
+
         jar(this.projectArtifactFile, A_CLASSFILE);
 
         File dependencyBDir = new File(this.testWorkDir, "B.jar");
@@ -321,4 +1004,57 @@ class CheckMojoTest
         // Errors
         assertTrue(this.mojo.reports.get(0).getErrors().isEmpty());
     }
+
+    @Test
+    void testNodeModes() throws IOException, IllegalAccessException
+    {
+        jar(this.projectArtifactFile, A_CLASSFILE);
+
+        File dependencyBDir = new File(this.testWorkDir, "B.jar");
+        File dependencyCDir = new File(this.testWorkDir, "C.jar");
+        jar(dependencyBDir, B_CLASSFILE, BC_CLASSFILE);
+        jar(dependencyCDir, C_CLASSFILE, BC_CLASSFILE);
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(artifact("b", "b", "1.0", dependencyBDir, null));
+        artifacts.add(artifact("c", "c", "1.0", dependencyCDir, null));
+        this.project.setArtifacts(artifacts);
+
+        RiskAnalyzerConfiguration configuration = new RiskAnalyzerConfiguration();
+        configuration.setType("fasten.binary");
+        FieldUtils.writeField(this.mojo, "risks", Arrays.asList(configuration), true);
+
+        List<String> expectedNodes = null;
+        List<String> expectedReports = null;
+        for (MavenGraph.NodeMode nodeMode : MavenGraph.NodeMode.values()) {
+            FieldUtils.writeField(this.mojo, "graphNodes", nodeMode, true);
+
+            assertThrows(MojoFailureException.class, () -> this.mojo.execute());
+
+            // Nodes with their scope, package and successors
+            List<String> nodes = new ArrayList<>();
+            for (MavenGraphNode node : this.mojo.graph.getOptimizedNodes()) {
+                nodes.add(node.getGlobalId() + " " + node.getScope() + " " + node.getFullURI() + " "
+                    + node.getPackageCG().map(cg -> cg.product).orElse(null) + " "
+                    + this.mojo.graph.getOptimizedGraph().successors(node.getGlobalId()).stream().sorted()
+                        .collect(Collectors.toList()));
+            }
+            nodes.sort(null);
+
+            List<String> reports = new ArrayList<>();
+            for (RiskReport report : this.mojo.reports) {
+                report.getErrors().forEach(message -> reports.add("error " + message.getFormattedMessage()));
+                report.getWarnings().forEach(message -> reports.add("warning " + message.getFormattedMessage()));
+            }
+            reports.sort(null);
+
+            if (expectedNodes == null) {
+                expectedNodes = nodes;
+                expectedReports = reports;
+            } else {
+                assertEquals(expectedNodes, nodes, nodeMode.name());
+                assertEquals(expectedReports, reports, nodeMode.name());
+            }
+        }
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link MetadataCache}.
+ *
+ * @version $Id$
+ */
+class MetadataCacheTest
+{
+    private static final String URI = "fasten://mvn!b:b$1.0/eu.fasten.maven.b/B.mB1()%2Fjava.lang%2FVoidType";
+
+    private static final String URI2 = "fasten://mvn!b:b$1.0/eu.fasten.maven.b/B.mB2()%2Fjava.lang%2FVoidType";
+
+    private final File testWorkDir = new File("target/test-" + new Date().getTime()).getAbsoluteFile();
+
+    private final MetadataCache cache = new MetadataCache(new File(this.testWorkDir, "metadata"));
+
+    @Test
+    void storePackage() throws IOException
+    {
+        assertNull(this.cache.getPackage("b:b", "1.0"));
+
+        this.cache.storePackage("b:b", "1.0", new JSONObject().put("metadata", new JSONObject()), "\"etag\"", null);
+
+        MetadataCache.Entry entry = this.cache.getPackage("b:b", "1.0");
+
+        assertTrue(entry.getData().has("metadata"));
+        assertEquals("\"etag\"", entry.getETag());
+        assertNull(entry.getLastModified());
+        assertTrue(entry.isRevalidable());
+        assertTrue(entry.isFresh(60000));
+        assertFalse(entry.isFresh(0));
+
+        assertNull(this.cache.getPackage("b:b", "2.0"));
+    }
+
+    @Test
+    void storeCallables() throws IOException
+    {
+        assertTrue(this.cache.getCallables("b:b", "1.0", Arrays.asList("nloc", "complexity")).isEmpty());
+
+        this.cache.storeCallables("b:b", "1.0", Arrays.asList("nloc", "complexity"),
+            Map.of(URI, new JSONObject().put("nloc", 42)));
+
+        // The order of the attributes does not matter
+        Map<String, MetadataCache.Entry> entries =
+            this.cache.getCallables("b:b", "1.0", Arrays.asList("complexity", "nloc"));
+
+        assertEquals(1, entries.size());
+        assertEquals(42, entries.get(URI).getData().getInt("nloc"));
+        assertFalse(entries.get(URI).isRevalidable());
+        assertTrue(entries.get(URI).isFresh(60000));
+
+        // New callables are added to the ones of the same package
+        this.cache.storeCallables("b:b", "1.0", Arrays.asList("nloc", "complexity"),
+            Map.of(URI2, new JSONObject()));
+
+        entries = this.cache.getCallables("b:b", "1.0", Arrays.asList("nloc", "complexity"));
+        assertEquals(2, entries.size());
+        assertEquals(42, entries.get(URI).getData().getInt("nloc"));
+        assertTrue(entries.get(URI2).getData().isEmpty());
+
+        // Different attributes or versions are different entries
+        assertTrue(this.cache.getCallables("b:b", "1.0", Arrays.asList("nloc")).isEmpty());
+        assertTrue(this.cache.getCallables("b:b", "2.0", Arrays.asList("nloc", "complexity")).isEmpty());
+    }
+}
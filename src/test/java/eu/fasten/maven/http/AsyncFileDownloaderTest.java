@@ -0,0 +1,238 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import eu.fasten.maven.serialization.Compression;
+
+/**
+ * Unit tests for {@link AsyncFileDownloader}, against a local HTTP server.
+ *
+ * @version $Id$
+ */
+class AsyncFileDownloaderTest
+{
+    private static final String CONTENT = "{\"product\":\"g:a\"}";
+
+    private final File testWorkDir = new File("target/test-download-" + new Date().getTime()).getAbsoluteFile();
+
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+    private HttpServer server;
+
+    private HttpHandler handler;
+
+    private URI uri;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", exchange -> this.handler.handle(exchange));
+        // Handle several requests at the same time
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+
+        this.uri = new URI("http://localhost:" + this.server.getAddress().getPort() + "/rcg");
+    }
+
+    @AfterEach
+    void afterEach()
+    {
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException
+    {
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(bytes);
+            }
+        } else {
+            exchange.sendResponseHeaders(code, -1);
+        }
+
+        exchange.close();
+    }
+
+    private static String read(InputStream stream) throws IOException
+    {
+        return IOUtils.toString(stream, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void success() throws Exception
+    {
+        this.handler = exchange -> respond(exchange, 200, CONTENT);
+
+        File file = new File(this.testWorkDir, "success.json");
+        try (AsyncFileDownloader downloader =
+            new AsyncFileDownloader(2, RequestConfig.DEFAULT, new RetryPolicy(0, 0))) {
+            AsyncFileDownloader.Download<String> download =
+                downloader.download(this.uri, file, Compression.none, AsyncFileDownloaderTest::read).get(10,
+                    TimeUnit.SECONDS);
+
+            assertEquals(200, download.getCode());
+            assertEquals(CONTENT, download.getContent());
+            assertTrue(download.getTime() > 0);
+        }
+
+        // The content is written while being parsed
+        assertEquals(CONTENT, FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void retry() throws Exception
+    {
+        AtomicInteger requests = new AtomicInteger();
+        this.handler = exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                respond(exchange, 503, null);
+            } else {
+                respond(exchange, 200, CONTENT);
+            }
+        };
+
+        RetryPolicy retryPolicy = new RetryPolicy(2, 10);
+        File file = new File(this.testWorkDir, "retry.json");
+        try (AsyncFileDownloader downloader = new AsyncFileDownloader(2, RequestConfig.DEFAULT, retryPolicy)) {
+            AsyncFileDownloader.Download<String> download =
+                downloader.download(this.uri, file, Compression.none, AsyncFileDownloaderTest::read).get(10,
+                    TimeUnit.SECONDS);
+
+            assertEquals(200, download.getCode());
+            assertEquals(CONTENT, download.getContent());
+        }
+
+        assertEquals(2, requests.get());
+        assertEquals(1, retryPolicy.getRetries());
+        assertEquals(CONTENT, FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void notFound() throws Exception
+    {
+        this.handler = exchange -> respond(exchange, 404, null);
+
+        File file = new File(this.testWorkDir, "notfound.json");
+        try (AsyncFileDownloader downloader =
+            new AsyncFileDownloader(2, RequestConfig.DEFAULT, new RetryPolicy(2, 10))) {
+            AsyncFileDownloader.Download<String> download =
+                downloader.download(this.uri, file, Compression.none, AsyncFileDownloaderTest::read).get(10,
+                    TimeUnit.SECONDS);
+
+            assertEquals(404, download.getCode());
+            assertNull(download.getContent());
+        }
+
+        assertFalse(file.exists());
+    }
+
+    @Test
+    void invalidContent() throws Exception
+    {
+        this.handler = exchange -> respond(exchange, 200, CONTENT);
+
+        File file = new File(this.testWorkDir, "invalid.json");
+        try (AsyncFileDownloader downloader =
+            new AsyncFileDownloader(2, RequestConfig.DEFAULT, new RetryPolicy(0, 0))) {
+            CompletableFuture<AsyncFileDownloader.Download<Object>> future =
+                downloader.download(this.uri, file, Compression.none, stream -> {
+                    throw new IllegalStateException("invalid");
+                });
+
+            ExecutionException exception =
+                assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof AsyncFileDownloader.ContentException);
+        }
+    }
+
+    @Test
+    void maxRequests() throws Exception
+    {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        this.handler = exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                // Keep the request in flight long enough for the others to be sent if they were not limited
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            respond(exchange, 200, CONTENT);
+        };
+
+        try (AsyncFileDownloader downloader =
+            new AsyncFileDownloader(2, RequestConfig.DEFAULT, new RetryPolicy(0, 0))) {
+            List<CompletableFuture<AsyncFileDownloader.Download<String>>> downloads = new ArrayList<>();
+            for (int i = 0; i < 6; ++i) {
+                downloads.add(downloader.download(this.uri, new File(this.testWorkDir, "max" + i + ".json"),
+                    Compression.none, AsyncFileDownloaderTest::read));
+            }
+
+            for (CompletableFuture<AsyncFileDownloader.Download<String>> download : downloads) {
+                assertEquals(CONTENT, download.get(30, TimeUnit.SECONDS).getContent());
+            }
+        }
+
+        assertEquals(2, maxInFlight.get());
+    }
+}
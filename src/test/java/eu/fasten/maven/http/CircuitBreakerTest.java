@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.junit.jupiter.api.Test;
+
+import eu.fasten.maven.serialization.Compression;
+
+/**
+ * Unit tests for {@link CircuitBreaker} and its use in {@link AsyncFileDownloader}.
+ *
+ * @version $Id$
+ */
+class CircuitBreakerTest
+{
+    @Test
+    void open()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(2);
+
+        assertFalse(breaker.failure());
+        breaker.success();
+        assertFalse(breaker.failure());
+        assertTrue(breaker.allowRequest());
+
+        // Second consecutive failure
+        assertTrue(breaker.failure());
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowRequest());
+
+        assertEquals(3, breaker.getFailures());
+        assertEquals(1, breaker.getSkipped());
+    }
+
+    @Test
+    void disabled()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(0);
+
+        for (int i = 0; i < 10; ++i) {
+            assertFalse(breaker.failure());
+        }
+
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void skipQueuedDownloads() throws Exception
+    {
+        CircuitBreaker breaker = new CircuitBreaker(1);
+        breaker.failure();
+
+        try (AsyncFileDownloader downloader =
+            new AsyncFileDownloader(1, RequestConfig.DEFAULT, new RetryPolicy(0, 0), breaker)) {
+            List<CompletableFuture<AsyncFileDownloader.Download<String>>> downloads = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                downloads.add(downloader.download(new URI("http://localhost:1/" + i), new File("target/download"),
+                    Compression.none, stream -> "content"));
+            }
+
+            // No request is sent once the breaker is open
+            for (CompletableFuture<AsyncFileDownloader.Download<String>> download : downloads) {
+                assertTrue(download.get(10, TimeUnit.SECONDS).isSkipped());
+            }
+        }
+
+        assertEquals(3, breaker.getSkipped());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link RetryPolicy}.
+ *
+ * @version $Id$
+ */
+class RetryPolicyTest
+{
+    @Test
+    void retry()
+    {
+        RetryPolicy policy = new RetryPolicy(2, 100);
+
+        assertFalse(policy.retryRequest(404, 1));
+        assertTrue(policy.retryRequest(503, 1));
+        assertTrue(policy.retryRequest(429, 2));
+        assertFalse(policy.retryRequest(503, 3));
+
+        assertEquals(2, policy.getRetries());
+
+        // Exponential backoff
+        assertEquals(100, policy.getRetryDelay(1));
+        assertEquals(200, policy.getRetryDelay(2));
+        assertEquals(400, policy.getRetryDelay(3));
+        assertEquals(60000, policy.getRetryDelay(100));
+
+        // The delay asked by the server is respected when longer than the backoff
+        assertEquals(3000, policy.getRetryDelay(1, "3"));
+        assertEquals(400, policy.getRetryDelay(3, "0"));
+        assertEquals(100, policy.getRetryDelay(1, "Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(60000, policy.getRetryDelay(1, "3600"));
+    }
+
+    @Test
+    void retryNetworkError()
+    {
+        RetryPolicy policy = new RetryPolicy(2, 100);
+
+        // Stale pooled connections: idempotent requests are retried once
+        assertTrue(policy.retryRequest("GET", new NoHttpResponseException("no response"), 1));
+        assertTrue(policy.retryRequest("HEAD", new ConnectionClosedException("closed"), 1));
+        assertFalse(policy.retryRequest("GET", new NoHttpResponseException("no response"), 2));
+        assertFalse(policy.retryRequest("POST", new NoHttpResponseException("no response"), 1));
+
+        // Unreachable server
+        assertFalse(policy.retryRequest("GET", new ConnectException(), 1));
+        assertFalse(policy.retryRequest("GET", new UnknownHostException(), 1));
+        assertFalse(policy.retryRequest("GET", new SocketTimeoutException(), 1));
+
+        assertEquals(2, policy.getRetries());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ExecutionMetrics}.
+ *
+ * @version $Id$
+ */
+class ExecutionMetricsTest
+{
+    @Test
+    void measure()
+    {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+
+        try (ExecutionMetrics.Measure measure = metrics.start("phase1")) {
+            measure.items(2);
+        }
+        try (ExecutionMetrics.Measure measure = metrics.start("phase1").items(3)) {
+            // Accumulated with the previous measure
+        }
+        metrics.addWallTime("phase2", 5000000, 1);
+
+        JSONArray phases = metrics.toJSON().getJSONArray("phases");
+
+        assertEquals(2, phases.length());
+
+        JSONObject phase1 = phases.getJSONObject(0);
+        assertEquals("phase1", phase1.getString("name"));
+        assertEquals(2, phase1.getLong("calls"));
+        assertEquals(5, phase1.getLong("items"));
+        assertTrue(phase1.getLong("wallTimeMs") >= 0);
+
+        JSONObject phase2 = phases.getJSONObject(1);
+        assertEquals("phase2", phase2.getString("name"));
+        assertEquals(1, phase2.getLong("calls"));
+        assertEquals(5, phase2.getLong("wallTimeMs"));
+        assertEquals(0, phase2.getLong("cpuTimeMs"));
+    }
+
+    @Test
+    void disabled()
+    {
+        ExecutionMetrics metrics = new ExecutionMetrics(false);
+
+        try (ExecutionMetrics.Measure measure = metrics.start("phase1")) {
+            measure.items(2);
+        }
+        metrics.addWallTime("phase2", 5000000, 1);
+
+        assertSame(metrics.start("phase1"), metrics.start("phase3"));
+        assertEquals(0, metrics.toJSON().getJSONArray("phases").length());
+    }
+}
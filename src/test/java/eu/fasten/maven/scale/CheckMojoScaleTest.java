@@ -0,0 +1,198 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.scale;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import eu.fasten.maven.CheckMojo;
+
+/**
+ * Run {@link CheckMojo} offline on generated projects of increasing size and report the time and heap used in
+ * {@code target/test-scale-<timestamp>/scale.json}.
+ * <p>
+ * Only executed when the number of dependencies is provided, for example:
+ * {@code mvn test -Dtest=CheckMojoScaleTest -Dfasten.scale.dependencies=1,10,50 -Dfasten.scale.classes=2000}.
+ * The other supported properties are {@code fasten.scale.methods}, {@code fasten.scale.fanOut} and
+ * {@code fasten.scale.inheritanceDepth}.
+ *
+ * @version $Id$
+ */
+@EnabledIfSystemProperty(named = "fasten.scale.dependencies", matches = ".+")
+class CheckMojoScaleTest
+{
+    private final File testWorkDir = new File("target/test-scale-" + new Date().getTime()).getAbsoluteFile();
+
+    private final SyntheticJarGenerator generator =
+        new SyntheticJarGenerator(Integer.getInteger("fasten.scale.classes", 1000),
+            Integer.getInteger("fasten.scale.methods", 10), Integer.getInteger("fasten.scale.fanOut", 3),
+            Integer.getInteger("fasten.scale.inheritanceDepth", 3), 42);
+
+    private static Artifact artifact(String artifactId, File file)
+    {
+        DefaultArtifact artifact = new DefaultArtifact("eu.fasten.synthetic", artifactId, "1.0", null, "jar", "", null);
+        artifact.setFile(file);
+
+        return artifact;
+    }
+
+    /**
+     * Sample the used heap (all the pools at the same time) while the check is running and keep the highest value.
+     *
+     * @version $Id$
+     */
+    private static final class HeapSampler
+    {
+        private static final long PERIOD_MS = 10;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        private final AtomicLong peak = new AtomicLong();
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        HeapSampler()
+        {
+            this.executor.scheduleAtFixedRate(this::sample, 0, PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample()
+        {
+            this.peak.accumulateAndGet(this.memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+
+        long getPeak()
+        {
+            return this.peak.get();
+        }
+
+        void close() throws InterruptedException
+        {
+            this.executor.shutdown();
+            this.executor.awaitTermination(1, TimeUnit.SECONDS);
+
+            sample();
+        }
+    }
+
+    private CheckMojo createMojo(File workDir, int dependencies) throws IOException, IllegalAccessException
+    {
+        CheckMojo mojo = new CheckMojo();
+        mojo.setLog(mock(Log.class));
+
+        File projectFile = new File(workDir, "project.jar");
+        this.generator.generate(projectFile, 0, dependencies > 0);
+
+        MavenProject project = new MavenProject();
+        Model model = new Model();
+        model.setGroupId("eu.fasten.synthetic");
+        model.setArtifactId("project");
+        model.setVersion("1.0-SNAPSHOT");
+        project.setModel(model);
+        project.setArtifact(artifact("project", projectFile));
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (int i = 1; i <= dependencies; ++i) {
+            File dependencyFile = new File(workDir, "dependency" + i + ".jar");
+            this.generator.generate(dependencyFile, i, i < dependencies);
+            artifacts.add(artifact("dependency" + i, dependencyFile));
+        }
+        project.setArtifacts(artifacts);
+
+        MavenSession session = mock(MavenSession.class);
+        when(session.isOffline()).thenReturn(true);
+
+        FieldUtils.writeField(mojo, "project", project, true);
+        FieldUtils.writeField(mojo, "session", session, true);
+        FieldUtils.writeField(mojo, "outputDirectory", new File(workDir, "target/call-graphs/"), true);
+
+        return mojo;
+    }
+
+    @Test
+    void scale()
+        throws IOException, IllegalAccessException, MojoExecutionException, MojoFailureException, InterruptedException
+    {
+        JSONArray results = new JSONArray();
+
+        for (String value : System.getProperty("fasten.scale.dependencies").split(",")) {
+            int dependencies = Integer.parseInt(value.trim());
+
+            File workDir = new File(this.testWorkDir, String.valueOf(dependencies));
+            CheckMojo mojo = createMojo(workDir, dependencies);
+
+            System.gc();
+
+            long time;
+            HeapSampler sampler = new HeapSampler();
+            try {
+                long start = System.nanoTime();
+                mojo.execute();
+                time = System.nanoTime() - start;
+            } finally {
+                sampler.close();
+            }
+
+            JSONObject metrics = new JSONObject(FileUtils.readFileToString(
+                new File(workDir, "target/call-graphs/fasten-metrics.json"), StandardCharsets.UTF_8));
+
+            assertFalse(metrics.getJSONArray("phases").isEmpty());
+
+            JSONObject result = new JSONObject();
+            result.put("dependencies", dependencies);
+            result.put("timeMs", time / 1000000);
+            // Highest heap usage sampled every 10ms, so short spikes between two samples are missed
+            result.put("peakHeapMB", sampler.getPeak() / (1024 * 1024));
+            result.put("metrics", metrics);
+            results.put(result);
+        }
+
+        FileUtils.write(new File(this.testWorkDir, "scale.json"), results.toString(2), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import eu.fasten.core.data.FastenURI;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.maven.MavenGraph;
+import eu.fasten.maven.MavenGraphNode;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+/**
+ * Compare the heap retained by the node indexes of {@link MavenGraph} (primitive fastutil maps) with the boxed
+ * {@link HashMap}s they replaced, and write the result in {@code target/test-scale-<timestamp>/index-footprint.json}.
+ * <p>
+ * Only executed when the number of nodes is provided, for example:
+ * {@code mvn test -Dtest=MavenGraphIndexFootprintTest -Dfasten.scale.indexNodes=5000000 -DargLine=-Xmx8g}. The
+ * nodes are spread over {@code fasten.scale.indexProducts} products (50 by default).
+ *
+ * @version $Id$
+ */
+@EnabledIfSystemProperty(named = "fasten.scale.indexNodes", matches = ".+")
+class MavenGraphIndexFootprintTest
+{
+    private final File testWorkDir = new File("target/test-scale-" + new Date().getTime()).getAbsoluteFile();
+
+    private static long getUsedHeap()
+    {
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Test
+    void footprint() throws IOException
+    {
+        int size = Integer.getInteger("fasten.scale.indexNodes");
+        int productCount = Integer.getInteger("fasten.scale.indexProducts", 50);
+
+        // The nodes and the URIs are shared by both implementations, so only the indexes themselves are measured
+        String[] products = new String[productCount];
+        for (int i = 0; i < productCount; ++i) {
+            products[i] = "eu.fasten.synthetic:product" + i;
+        }
+        MavenGraphNode[] nodes = new MavenGraphNode[size];
+        FastenURI[] uris = new FastenURI[size];
+        for (int id = 0; id < size; ++id) {
+            nodes[id] = new MavenGraphNode(id, JavaScope.internalTypes, null, null);
+            uris[id] = FastenURI.createSchemeless(null, null, null, "eu.fasten.synthetic",
+                "C" + (id / 100) + ".m" + (id % 100) + "()%2Fjava.lang%2FVoidType");
+        }
+
+        // Before: boxed ids
+        long base = getUsedHeap();
+        Map<Long, MavenGraphNode> boxedNodes = new HashMap<>();
+        Map<String, Map<FastenURI, Long>> boxedURIs = new HashMap<>();
+        for (int id = 0; id < size; ++id) {
+            boxedNodes.put((long) id, nodes[id]);
+            boxedURIs.computeIfAbsent(products[id % productCount], k -> new HashMap<>()).put(uris[id], (long) id);
+        }
+        long boxed = getUsedHeap() - base;
+        assertEquals(size, boxedNodes.size());
+        assertEquals(productCount, boxedURIs.size());
+        boxedNodes = null;
+        boxedURIs = null;
+
+        // After: primitive ids, created the same way as in MavenGraph
+        base = getUsedHeap();
+        Long2ObjectMap<MavenGraphNode> primitiveNodes = new Long2ObjectOpenHashMap<>();
+        Map<String, Object2LongMap<FastenURI>> primitiveURIs = new HashMap<>();
+        for (int id = 0; id < size; ++id) {
+            primitiveNodes.put(id, nodes[id]);
+            primitiveURIs.computeIfAbsent(products[id % productCount], k -> {
+                Object2LongMap<FastenURI> map = new Object2LongOpenHashMap<>();
+                map.defaultReturnValue(-1);
+
+                return map;
+            }).put(uris[id], id);
+        }
+        long primitive = getUsedHeap() - base;
+        assertEquals(size, primitiveNodes.size());
+        assertEquals(productCount, primitiveURIs.size());
+
+        JSONObject result = new JSONObject();
+        result.put("nodes", size);
+        result.put("products", productCount);
+        result.put("boxedIndexMB", boxed / (1024 * 1024));
+        result.put("primitiveIndexMB", primitive / (1024 * 1024));
+        result.put("savedMB", (boxed - primitive) / (1024 * 1024));
+
+        FileUtils.write(new File(this.testWorkDir, "index-footprint.json"), result.toString(2),
+            StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.scale;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generate jars containing many classes calling each other, to check how the plugin behaves on large projects.
+ * <p>
+ * Each jar contains a single package of {@code classes} classes declaring {@code methods} methods each. The classes
+ * are organized in inheritance chains of {@code inheritanceDepth} classes, and each method calls {@code fanOut} random
+ * methods. When a package to call is provided, the first call of each method targets it so that the whole chain of
+ * jars is reachable from the project. The jars are the same for the same seed.
+ *
+ * @version $Id$
+ */
+public class SyntheticJarGenerator
+{
+    private static final String OBJECT = "java/lang/Object";
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private static final String VOID_DESCRIPTOR = "()V";
+
+    private final int classes;
+
+    private final int methods;
+
+    private final int fanOut;
+
+    private final int inheritanceDepth;
+
+    private final long seed;
+
+    /**
+     * @param classes the number of classes in each jar
+     * @param methods the number of methods in each class
+     * @param fanOut the number of calls made by each method
+     * @param inheritanceDepth the length of the inheritance chains (1 for classes only extending Object)
+     * @param seed the seed of the random generator used to choose the called methods
+     */
+    public SyntheticJarGenerator(int classes, int methods, int fanOut, int inheritanceDepth, long seed)
+    {
+        this.classes = classes;
+        this.methods = methods;
+        this.fanOut = fanOut;
+        this.inheritanceDepth = Math.max(1, inheritanceDepth);
+        this.seed = seed;
+    }
+
+    /**
+     * @param index the index of the package
+     * @return the name of the package, in internal form (with slashes)
+     */
+    public static String getPackage(int index)
+    {
+        return "eu/fasten/synthetic/p" + index;
+    }
+
+    /**
+     * @param file the jar to generate
+     * @param index the index of the package to generate
+     * @param callNext true if the methods should call the package with the next index
+     * @throws IOException when failing to write the jar
+     */
+    public void generate(File file, int index, boolean callNext) throws IOException
+    {
+        Random random = new Random(this.seed + index);
+
+        String packageName = getPackage(index);
+        String nextPackageName = callNext ? getPackage(index + 1) : null;
+
+        file.getParentFile().mkdirs();
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            try (JarOutputStream stream = new JarOutputStream(fos, manifest)) {
+                for (int i = 0; i < this.classes; ++i) {
+                    String className = packageName + "/C" + i;
+
+                    stream.putNextEntry(new ZipEntry(className + ".class"));
+                    stream.write(generateClass(className, getSuperClass(packageName, i), packageName,
+                        nextPackageName, random));
+                    stream.closeEntry();
+                }
+            }
+        }
+    }
+
+    private String getSuperClass(String packageName, int i)
+    {
+        return i % this.inheritanceDepth == 0 ? OBJECT : packageName + "/C" + (i - 1);
+    }
+
+    private byte[] generateClass(String className, String superClass, String packageName, String nextPackageName,
+        Random random)
+    {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, superClass, null);
+
+        // Constructor
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, CONSTRUCTOR, VOID_DESCRIPTOR, null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superClass, CONSTRUCTOR, VOID_DESCRIPTOR, false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        // Methods
+        for (int i = 0; i < this.methods; ++i) {
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "m" + i, VOID_DESCRIPTOR, null, null);
+            method.visitCode();
+            for (int call = 0; call < this.fanOut; ++call) {
+                String target = (call == 0 && nextPackageName != null ? nextPackageName : packageName) + "/C"
+                    + random.nextInt(this.classes);
+
+                method.visitTypeInsn(Opcodes.NEW, target);
+                method.visitInsn(Opcodes.DUP);
+                method.visitMethodInsn(Opcodes.INVOKESPECIAL, target, CONSTRUCTOR, VOID_DESCRIPTOR, false);
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, target, "m" + random.nextInt(this.methods),
+                    VOID_DESCRIPTOR, false);
+            }
+            method.visitInsn(Opcodes.RETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+
+        writer.visitEnd();
+
+        return writer.toByteArray();
+    }
+}
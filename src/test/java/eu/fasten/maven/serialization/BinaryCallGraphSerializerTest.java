@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import eu.fasten.core.data.JSONUtils;
+import eu.fasten.core.data.JavaScope;
+import eu.fasten.maven.MavenExtendedRevisionJavaCallGraph;
+
+/**
+ * Unit tests for {@link BinaryCallGraphSerializer}.
+ * 
+ * @version $Id$
+ */
+class BinaryCallGraphSerializerTest
+{
+    private static final String JSON = "{\"product\":\"g:a\",\"forge\":\"mvn\",\"generator\":\"OPAL\","
+        + "\"version\":\"1.0\",\"timestamp\":1652000000000,\"nodes\":3,"
+        + "\"cha\":{\"internalTypes\":{\"/p/A\":{\"methods\":{"
+        + "\"0\":{\"uri\":\"/p/A.m()V\",\"metadata\":{\"first\":3,\"last\":5,\"defined\":true}},"
+        + "\"1\":{\"uri\":\"/p/A.n()V\",\"metadata\":{}}},"
+        + "\"superInterfaces\":[],\"superClasses\":[\"/java.lang/Object\"],\"sourceFile\":\"A.java\","
+        + "\"access\":\"public\",\"final\":false}},"
+        + "\"externalTypes\":{\"/java.lang/Object\":{\"methods\":{"
+        + "\"2\":{\"uri\":\"/java.lang/Object.%3Cinit%3E()VoidType\",\"metadata\":{}}},"
+        + "\"superInterfaces\":[],\"superClasses\":[],\"sourceFile\":\"\",\"access\":\"\",\"final\":false}}},"
+        + "\"call-sites\":[[0,1,{\"1\":{\"line\":3,\"type\":\"invokevirtual\",\"receiver\":\"[/p/A]\"}}],"
+        + "[0,2,{\"4\":{\"line\":4,\"type\":\"invokespecial\",\"receiver\":\"[/java.lang/Object]\"}}]]}";
+
+    private final Artifact artifact = new DefaultArtifact("g", "a", "1.0", null, "jar", "", null);
+
+    private MavenExtendedRevisionJavaCallGraph roundTrip(MavenExtendedRevisionJavaCallGraph callGraph)
+        throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryCallGraphSerializer.serialize(callGraph, output);
+
+        return BinaryCallGraphSerializer.read(this.artifact, new ByteArrayInputStream(output.toByteArray()), false);
+    }
+
+    @Test
+    void roundTrip() throws IOException
+    {
+        MavenExtendedRevisionJavaCallGraph callGraph =
+            new MavenExtendedRevisionJavaCallGraph(this.artifact, new JSONObject(JSON), false);
+
+        MavenExtendedRevisionJavaCallGraph result = roundTrip(callGraph);
+
+        assertEquals(callGraph.forge, result.forge);
+        assertEquals(callGraph.product, result.product);
+        assertEquals(callGraph.version, result.version);
+        assertEquals(callGraph.getCgGenerator(), result.getCgGenerator());
+        assertEquals(1652000000000L, result.timestamp);
+        assertEquals(callGraph.getClassHierarchy().keySet(), result.getClassHierarchy().keySet());
+        assertTrue(callGraph.getClassHierarchy().get(JavaScope.internalTypes).get("/p/A").toJSON()
+            .similar(result.getClassHierarchy().get(JavaScope.internalTypes).get("/p/A").toJSON()));
+        assertEquals(callGraph.getGraph().getCallSites(), result.getGraph().getCallSites());
+        assertTrue(new JSONObject(JSONUtils.toJSONString(callGraph))
+            .similar(new JSONObject(JSONUtils.toJSONString(result))));
+    }
+
+    @Test
+    void invalidContent()
+    {
+        assertThrows(IOException.class, () -> BinaryCallGraphSerializer.read(this.artifact,
+            new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)), false));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package eu.fasten.maven.serialization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link Compression}.
+ * 
+ * @version $Id$
+ */
+class CompressionTest
+{
+    private final File testWorkDir = new File("target/test-" + new Date().getTime()).getAbsoluteFile();
+
+    private byte[] content()
+    {
+        byte[] content = new byte[1024 * 1024];
+        new Random(42).nextBytes(content);
+
+        return content;
+    }
+
+    @Test
+    void gzip() throws IOException
+    {
+        byte[] content = content();
+
+        File file = new File(this.testWorkDir, "file.txt.gz");
+        file.getParentFile().mkdirs();
+        assertEquals(Compression.gzip, Compression.fromFile(file));
+        assertEquals("file.txt", Compression.getUncompressedName(file));
+
+        try (OutputStream stream = Compression.gzip.newOutputStream(file)) {
+            stream.write(content);
+        }
+
+        try (InputStream stream = Compression.newInputStream(file)) {
+            assertArrayEquals(content, IOUtils.toByteArray(stream));
+        }
+
+        File copy = new File(this.testWorkDir, "file.txt");
+        Compression.copy(file, copy);
+        assertArrayEquals(content, FileUtils.readFileToByteArray(copy));
+    }
+
+    @Test
+    void failure()
+    {
+        File file = new File(this.testWorkDir, "missing/file.txt.gz");
+
+        assertThrows(IOException.class, () -> {
+            try (OutputStream stream = Compression.gzip.newOutputStream(file)) {
+                stream.write(content());
+            }
+        });
+    }
+}